@@ -0,0 +1,23 @@
+/*
+ * Matthew Clark
+ */
+
+//the same query as PathWorkload over the junction graph
+public class JunctionPathWorkload extends MazeWorkload {
+	private JunctionPaths junctionPaths;
+	private int startCell = 0;
+
+	public JunctionPathWorkload() {
+	}
+
+	void setup(int evalFunction, int depth) {
+		junctionPaths = new JunctionPaths(new JunctionGraph(graph));
+	}
+
+	public double run() {
+		//swap the ends, so the distances kept from the last query don't answer this one
+		int target = startCell;
+		startCell = (startCell == 0) ? farCell : 0;
+		return junctionPaths.distance(startCell, target);
+	}
+}
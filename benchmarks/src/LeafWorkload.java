@@ -0,0 +1,28 @@
+/*
+ * Matthew Clark
+ */
+
+//full leaf evaluation of the starting position
+public class LeafWorkload extends MazeWorkload {
+	private Evaluator evaluator;
+	private State leafState;
+	private int evalFunction;
+
+	public LeafWorkload() {
+	}
+
+	void setup(int evalFunction, int depth) {
+		this.evalFunction = evalFunction;
+		evaluator = new Evaluator(graph, distTable);
+		evaluator.startTurn(startState);
+
+		//the evaluation eats a pellet under hupman, so eat it up front and every run scores the same state
+		leafState = new State(startState);
+		int pellet = graph.getPelletAt(leafState.getHupmanCell());
+		if (pellet >= 0) leafState.removePellet(pellet);
+	}
+
+	public double run() {
+		return evaluator.getLeafWeight(leafState, evalFunction);
+	}
+}
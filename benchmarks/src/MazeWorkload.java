@@ -0,0 +1,60 @@
+/*
+ * Matthew Clark
+ */
+
+import bench.Workload;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+//loads a maze (or generates one from a MazeGenerator spec) and sets up a fixed starting position for the benchmarks:
+//hupman at (0, 0) with every pellet left and one ghost on the cell farthest from hupman
+abstract class MazeWorkload implements Workload {
+	MazeGraph graph;
+	DistanceTable distTable;
+	State startState;
+	int farCell = 0;
+
+	public void setup(String mazeFile, int evalFunction, int depth) throws IOException {
+		graph = MazeFile.load(mazeFile).createGraph();
+		distTable = DistanceTable.fits(graph) ? new DistanceTable(graph) : null;
+
+		//one breadth-first search from (0, 0) instead of a path per cell, generated mazes can be large
+		int[] dists = new int[graph.getNumCells()];
+		Arrays.fill(dists, -1);
+		int[] queue = new int[graph.getNumCells()];
+		int head = 0, tail = 0;
+		queue[tail++] = 0;
+		dists[0] = 0;
+		while (head < tail) {
+			int cell = queue[head++];
+			for (int i = 0; i < graph.getDegree(cell); i++) {
+				int adjCell = graph.getNeighbour(cell, i);
+				if (dists[adjCell] < 0) {
+					dists[adjCell] = dists[cell] + 1;
+					queue[tail++] = adjCell;
+				}
+			}
+		}
+
+		int farDist = 0;
+		for (int cell = 0; cell < graph.getNumCells(); cell++) {
+			int dist = dists[cell];
+			if (graph.contains(cell) && dist > farDist) {
+				farDist = dist;
+				farCell = cell;
+			}
+		}
+
+		startState = new State();
+		startState.setHupmanCell(0);
+		startState.addGhost(farCell);
+		for (int i = 0; i < graph.getNumPellets(); i++) {
+			startState.addPellet(i);
+		}
+
+		setup(evalFunction, depth);
+	}
+
+	abstract void setup(int evalFunction, int depth);
+}
@@ -0,0 +1,19 @@
+/*
+ * Matthew Clark
+ */
+
+//one A* query across the maze, from hupman's start to the farthest cell
+public class PathWorkload extends MazeWorkload {
+	private PathFinder pathFinder;
+
+	public PathWorkload() {
+	}
+
+	void setup(int evalFunction, int depth) {
+		pathFinder = new PathFinder(graph);
+	}
+
+	public double run() {
+		return pathFinder.findPath(0, farCell).length;
+	}
+}
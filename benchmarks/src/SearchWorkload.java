@@ -0,0 +1,30 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.SplittableRandom;
+
+//one turn of hupman's fixed-depth search from the starting position, the same search takeTurn runs
+//there is no transposition table, otherwise every run after the first would just read back the last one
+public class SearchWorkload extends MazeWorkload {
+	private static final double GHOST_CHANCE = 0.7;
+	private static final long SEED = 456;
+
+	private Searcher searcher;
+	private int evalFunction;
+	private int depth;
+	private SplittableRandom random = new SplittableRandom(SEED);
+
+	public SearchWorkload() {
+	}
+
+	void setup(int evalFunction, int depth) {
+		this.evalFunction = evalFunction;
+		this.depth = depth;
+		searcher = new Searcher(graph, new Evaluator(graph, distTable));
+	}
+
+	public double run() {
+		return searcher.search(startState, depth, GHOST_CHANCE, evalFunction, random).getWeight();
+	}
+}
@@ -0,0 +1,18 @@
+/*
+ * Matthew Clark
+ */
+
+//the same query as PathWorkload looked up in the DistanceTable
+//the bundled mazes all fit in a table, generated ones may not
+public class TablePathWorkload extends MazeWorkload {
+	public TablePathWorkload() {
+	}
+
+	void setup(int evalFunction, int depth) {
+		if (distTable == null) throw new IllegalStateException("the maze is too big for a distance table");
+	}
+
+	public double run() {
+		return distTable.distance(0, farCell);
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Matthew Clark
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//full leaf evaluation for each evaluation function
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark {
+	@Param({"maze.txt", "maze2.txt", "maze3.txt", "maze4.txt", "level1.txt", "level2.txt"})
+	public String maze;
+
+	@Param({"1", "2"})
+	public int evalFunction;
+
+	private Workload workload;
+
+	@Setup
+	public void setup() throws Exception {
+		workload = Workload.load("LeafWorkload");
+		workload.setup(maze, evalFunction, 0);
+	}
+
+	@Benchmark
+	public double leafWeight() {
+		return workload.run();
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Matthew Clark
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//single path query on each bundled maze: A* over the cells, a DistanceTable lookup and Dijkstra over the junction graph
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+	@Param({"maze.txt", "maze2.txt", "maze3.txt", "maze4.txt", "level1.txt", "level2.txt"})
+	public String maze;
+
+	private Workload workload;
+	private Workload tableWorkload;
+	private Workload junctionWorkload;
+
+	@Setup
+	public void setup() throws Exception {
+		workload = Workload.load("PathWorkload");
+		workload.setup(maze, 1, 0);
+		tableWorkload = Workload.load("TablePathWorkload");
+		tableWorkload.setup(maze, 1, 0);
+		junctionWorkload = Workload.load("JunctionPathWorkload");
+		junctionWorkload.setup(maze, 1, 0);
+	}
+
+	@Benchmark
+	public double findPath() {
+		return workload.run();
+	}
+
+	@Benchmark
+	public double tableDistance() {
+		return tableWorkload.run();
+	}
+
+	@Benchmark
+	public double junctionDistance() {
+		return junctionWorkload.run();
+	}
+}
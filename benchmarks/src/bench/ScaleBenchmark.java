@@ -0,0 +1,41 @@
+/*
+ * Matthew Clark
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//how long one of hupman's turns takes as the maze grows, on generated mazes with a pellet in every tenth cell
+//more sizes or other generator options go in -p, e.g. -p maze=gen:512x512,loops=0.3
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScaleBenchmark {
+	@Param({"gen:16x16", "gen:32x32", "gen:64x64", "gen:128x128"})
+	public String maze;
+
+	@Param({"1", "2"})
+	public int evalFunction;
+
+	@Param({"4"})
+	public int depth;
+
+	private Workload workload;
+
+	@Setup
+	public void setup() throws Exception {
+		workload = Workload.load("SearchWorkload");
+		workload.setup(maze, evalFunction, depth);
+	}
+
+	@Benchmark
+	public double takeTurn() {
+		return workload.run();
+	}
+}
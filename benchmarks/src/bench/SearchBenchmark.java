@@ -0,0 +1,40 @@
+/*
+ * Matthew Clark
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//one full turn of hupman's search at depths 1-6, from a fixed starting position
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+	@Param({"maze.txt", "maze2.txt", "maze3.txt", "maze4.txt", "level1.txt", "level2.txt"})
+	public String maze;
+
+	@Param({"1", "2"})
+	public int evalFunction;
+
+	@Param({"1", "2", "3", "4", "5", "6"})
+	public int depth;
+
+	private Workload workload;
+
+	@Setup
+	public void setup() throws Exception {
+		workload = Workload.load("SearchWorkload");
+		workload.setup(maze, evalFunction, depth);
+	}
+
+	@Benchmark
+	public double takeTurn() {
+		return workload.run();
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * Matthew Clark
+ */
+
+package bench;
+
+import java.io.IOException;
+
+//game code timed by a benchmark
+//workloads are written in the default package next to the game classes and loaded by name,
+//since a named package can't import classes from the default package
+public interface Workload {
+	void setup(String mazeFile, int evalFunction, int depth) throws IOException;
+
+	//one operation, returns a result so the JIT can't drop the work
+	double run();
+
+	static Workload load(String className) throws ReflectiveOperationException {
+		return (Workload) Class.forName(className).getConstructor().newInstance();
+	}
+}
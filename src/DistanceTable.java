@@ -0,0 +1,55 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+
+//all-pairs maze distances, built once with a BFS from every cell
+//cells are indexed as y * numCols + x
+class DistanceTable {
+	//biggest maze (in cells) we build a table for (4096 cells = 32MB of shorts)
+	static final int MAX_CELLS = 4096;
+	static final int UNREACHABLE = -1;
+
+	private int numCells;
+	private short[] arrDist;
+
+	DistanceTable(MazeGraph graph) {
+		numCells = graph.getNumCells();
+		arrDist = new short[numCells * numCells];
+		Arrays.fill(arrDist, (short) UNREACHABLE);
+
+		int[] queue = new int[numCells];
+		for (int source = 0; source < numCells; source++) {
+			if (!graph.contains(source)) continue;
+
+			//BFS from the source cell, writing straight into its row of the table
+			int row = source * numCells;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = source;
+			arrDist[row + source] = 0;
+			while (head < tail) {
+				int cell = queue[head++];
+				short nextDist = (short) (arrDist[row + cell] + 1);
+				int degree = graph.getDegree(cell);
+				for (int i = 0; i < degree; i++) {
+					int adjCell = graph.getNeighbour(cell, i);
+					if (arrDist[row + adjCell] == UNREACHABLE) {
+						arrDist[row + adjCell] = nextDist;
+						queue[tail++] = adjCell;
+					}
+				}
+			}
+		}
+	}
+
+	static boolean fits(MazeGraph graph) {
+		return graph.getNumCells() <= MAX_CELLS;
+	}
+
+	//number of moves between two cells, or UNREACHABLE
+	int distance(int cellA, int cellB) {
+		return arrDist[cellA * numCells + cellB];
+	}
+}
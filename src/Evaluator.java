@@ -0,0 +1,216 @@
+/*
+ * Matthew Clark
+ */
+
+//evaluation functions for minimax states
+//the HAS_PELLET and HAS_GHOST weights also apply the move to the state (eat the pellet, kill hupman)
+class Evaluator {
+	//weight constants
+	static final int WT_HAS_PELLET 		= 0;
+	static final int WT_HAS_GHOST 		= 1;
+	static final int WT_DIST_PELLETS 	= 2;
+	static final int WT_DIST_GHOSTS 	= 3;
+	static final int WT_TOTAL_STEPS 	= 4;
+
+	private MazeGraph graph;
+	private DistanceTable distTable;
+	private PathFinder pathFinder = null;
+	private JunctionPaths junctionPaths = null;
+	private PelletField pelletField;
+	private GhostField ghostField;
+
+	//ghost distance weights by path length, the same sums the weight functions would do
+	private double[] ghostWeightsOne;
+	private double[] ghostWeightsTwo;
+	private long pathQueries = 0;
+
+	//distTable may be null for mazes too big to precompute, distances then come from A*
+	Evaluator(MazeGraph graph, DistanceTable distTable) {
+		this(graph, distTable, null);
+	}
+
+	//with the junction graph on (it can be shared with other evaluators of the maze) distances on mazes
+	//without a table come from Dijkstra over the junctions instead of A* over the cells, "junctions" may be null
+	Evaluator(MazeGraph graph, DistanceTable distTable, JunctionGraph junctions) {
+		this.graph = graph;
+		this.distTable = distTable;
+		if (distTable == null && junctions != null) junctionPaths = new JunctionPaths(junctions);
+		else if (distTable == null) pathFinder = new PathFinder(graph);
+		pelletField = new PelletField(graph, this);
+		ghostField = new GhostField(graph);
+
+		//no path is longer than the number of cells
+		ghostWeightsOne = new double[graph.getNumCells() + 1];
+		ghostWeightsTwo = new double[graph.getNumCells() + 1];
+		for (int i = 1; i < ghostWeightsOne.length; i++) {
+			ghostWeightsOne[i] = 50.0 / Math.pow(i, 1.4);
+			ghostWeightsTwo[i] = 250.0 * (1.0 / Math.pow(i, 1.4));
+		}
+	}
+
+	//builds the pellet distances for the pellets left at the start of a turn, states with other
+	//pellets are still scored correctly, just more slowly the more pellets they differ by
+	void startTurn(State rootState) {
+		pelletField.update(rootState);
+		ghostField.update(rootState);
+	}
+
+	//weight of moving into a state, added to the weight of its subtree
+	double getMoveWeight(State testState, int evalFunction) {
+		double weight = 0;
+		if (evalFunction == 1) {
+			weight += getWeightOne(testState, WT_HAS_PELLET);	//if state has pellet
+			weight += getWeightOne(testState, WT_HAS_GHOST);		//if state has ghost
+		} else if (evalFunction == 2) {
+			weight += getWeightTwo(testState, WT_HAS_PELLET);	//if state has pellet
+			weight += getWeightTwo(testState, WT_HAS_GHOST);		//if state has ghost
+		}
+		return weight;
+	}
+
+	//weight of a state at the bottom of the search
+	float getLeafWeight(State testState, int evalFunction) {
+		float weight = 0;
+		if (evalFunction == 1) {
+			weight += getWeightOne(testState, WT_HAS_PELLET);		//if state has pellet
+			weight += getWeightOne(testState, WT_HAS_GHOST);		//if state has ghost
+			weight += getWeightOne(testState, WT_DIST_PELLETS);	//distance to other pellets
+			weight += getWeightOne(testState, WT_DIST_GHOSTS);	//distance to other ghosts
+			weight += getWeightOne(testState, WT_TOTAL_STEPS);	//total steps taken
+		} else if (evalFunction == 2) {
+			weight += getWeightTwo(testState, WT_HAS_PELLET);		//if state has pellet
+			weight += getWeightTwo(testState, WT_HAS_GHOST);		//if state has ghost
+			weight += getWeightTwo(testState, WT_DIST_PELLETS);	//distance to other pellets
+			weight += getWeightTwo(testState, WT_DIST_GHOSTS);	//distance to other ghosts
+			weight += getWeightTwo(testState, WT_TOTAL_STEPS);	//total steps taken
+		}
+		return weight;
+	}
+
+	//length of the path between two cells
+	int getPathLength(int startCell, int targetCell) {
+		pathQueries++;
+		int dist;
+		if (distTable != null) dist = distTable.distance(startCell, targetCell);
+		else if (junctionPaths != null) dist = junctionPaths.distance(startCell, targetCell);
+		else dist = pathFinder.distance(startCell, targetCell);
+		if (dist == DistanceTable.UNREACHABLE) return Integer.MAX_VALUE;
+
+		//paths have always counted the start cell when start == target
+		return Math.max(dist, 1);
+	}
+
+	//true when every getPathLength is an A* search, rather than a table lookup or a junction search
+	//that later queries from the same cell reuse
+	boolean searchesEachPath() {
+		return pathFinder != null;
+	}
+
+	//path length from a cell to a ghost, from the DistanceTable or the ghost's BFS field, or searched for
+	//when the cell is outside the field
+	int getGhostPathLength(int cell, int ghostCell) {
+		if (distTable != null) return getPathLength(cell, ghostCell);
+
+		int dist = ghostField.distance(cell, ghostCell);
+		if (dist == GhostField.OUTSIDE) return getPathLength(cell, ghostCell);
+		pathQueries++;
+		return (dist == DistanceTable.UNREACHABLE) ? Integer.MAX_VALUE : Math.max(dist, 1);
+	}
+
+	//number of getPathLength calls so far, read by the searcher's statistics
+	long getPathQueries() {
+		return pathQueries;
+	}
+
+	//path length from a cell to the closest remaining pellet, used to order hupman's moves
+	int getNearestPelletLength(State testState, int cell) {
+		return pelletField.getNearestLength(testState, cell);
+	}
+
+	double getWeightOne(State testState, int weightType) {
+		double weight = 0;
+
+		int cellHupman = testState.getHupmanCell();
+
+		if (weightType == WT_HAS_PELLET) {
+			int pellet = graph.getPelletAt(cellHupman);
+			if (testState.hasPellet(pellet)) {
+				weight += 100.0 * (1.0 / testState.getPelletsLeft());
+				testState.setUneatenSteps(0);
+				testState.removePellet(pellet);
+			}
+		} else if (weightType == WT_HAS_GHOST) {
+			if (!ghostField.canHaveGhost(testState, cellHupman)) return weight;
+			for (int j = 0; j < testState.getNumGhosts(); j++) {
+				if (testState.getGhostCell(j) == cellHupman) {
+					weight -= 500.0 / testState.getSteps();
+					testState.setDead(true);
+				}
+			}
+		} else if (weightType == WT_DIST_PELLETS) {
+			//5 / pathLength^2 per pellet
+			int pelletsLeft = testState.getPelletsLeft();
+			if (pelletsLeft > 0) {
+				weight += 5.0 * pelletField.getInverseSquareSum(testState, cellHupman)
+						* Math.pow(testState.getSteps(), 1.4) * (1.0 / pelletsLeft);
+			}
+		} else if (weightType == WT_DIST_GHOSTS) {
+			for (int i = 0; i < testState.getNumGhosts(); i++) {
+				int pathLength = getGhostPathLength(cellHupman, testState.getGhostCell(i));
+				weight -= (pathLength < ghostWeightsOne.length) ? ghostWeightsOne[pathLength]
+						: 50.0 / Math.pow(pathLength, 1.4);
+			}
+		} else if (weightType == WT_TOTAL_STEPS) {
+			weight -= (testState.getPrevTurn() == 0) ? Math.pow(testState.getSteps(), 1.5) : 0;
+		}
+
+		return weight;
+	}
+
+	double getWeightTwo(State testState, int weightType) {
+		double weight = 0;
+
+		int cellHupman = testState.getHupmanCell();
+
+		if (weightType == WT_HAS_PELLET) {
+			int pellet = graph.getPelletAt(cellHupman);
+			if (testState.hasPellet(pellet)) {
+				weight += 2000.0 / testState.getPelletsLeft() * Math.sqrt(testState.getUneatenSteps());
+				testState.setUneatenSteps(0);
+				testState.removePellet(pellet);
+			}
+		} else if (weightType == WT_HAS_GHOST) {
+			if (!ghostField.canHaveGhost(testState, cellHupman)) return weight;
+			for (int j = 0; j < testState.getNumGhosts(); j++) {
+				if (testState.getGhostCell(j) == cellHupman) {
+					weight -= 1000.0 * (testState.getPrevTurn() == 0 ? Math.floor(1.0 / Math.max(testState.getUneatenSteps()
+							* 2 * testState.getSteps(), 1)) : 1.0);
+					testState.setDead(true);
+				}
+			}
+		} else if (weightType == WT_DIST_PELLETS) {
+			//2000 / pathLength^2 per pellet
+			int pelletsLeft = testState.getPelletsLeft();
+			if (pelletsLeft > 0) {
+				weight += 2000.0 / pelletsLeft * pelletField.getInverseSquareSum(testState, cellHupman)
+						* Math.sqrt(testState.getUneatenSteps());
+			}
+		} else if (weightType == WT_DIST_GHOSTS) {
+			for (int i = 0; i < testState.getNumGhosts(); i++) {
+				int pathLength = getGhostPathLength(cellHupman, testState.getGhostCell(i));
+				double power = testState.getUneatenSteps() * 2;
+				if (testState.getPrevTurn() == 0) {
+					//floor(1 / pathLength^sqrt(power)) is 1 next to the ghost or before any step, otherwise 0
+					weight -= (pathLength == 1 || power == 0) ? 250.0 : 0;
+				} else {
+					weight -= (pathLength < ghostWeightsTwo.length) ? ghostWeightsTwo[pathLength]
+							: 250.0 * (1.0 / Math.pow(pathLength, 1.4));
+				}
+			}
+		} else if (weightType == WT_TOTAL_STEPS) {
+			//weight -= (testState.getPrevTurn() == 0) ? Math.pow(testState.getSteps(), 1.5) : 0;
+		}
+
+		return weight;
+	}
+}
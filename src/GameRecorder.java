@@ -0,0 +1,135 @@
+/*
+ * Matthew Clark
+ */
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+//records a game as it is played into a compact binary log that GameReplay can step through
+//the game loop only appends a few bytes to an array per turn, nothing is written to disk until save()
+//
+//format, all integers are unsigned LEB128 varints unless noted:
+//	header:	magic "HUPR" (4 bytes), version, rows, cols, pellets, seed (8 bytes big-endian), evaluation function,
+//			hupman's cell, number of ghosts, each ghost's cell, whose turn it is, pellet words,
+//			each pellet word (8 bytes big-endian)
+//	events until the end of the file, each starting with a tag whose low 2 bits are the kind:
+//	move:	tag = (agent * 4 + neighbour index) << 2, then the change in turn latency (microseconds)
+//			and in nodes searched from the previous move, both zigzag encoded
+//	jump:	tag = agent << 2 | 3, then the cell, for a move that wasn't to a neighbour
+//	click:	tag = cell << 2 | 1 to place hupman, cell << 2 | 2 to add or remove a ghost
+//a move by hupman or one of the first 7 ghosts takes about 4 to 7 bytes
+class GameRecorder {
+	static final int MAGIC = 0x48555052;	//"HUPR"
+	static final int VERSION = 1;
+
+	static final int EVENT_MOVE = 0;
+	static final int EVENT_HUPMAN = 1;
+	static final int EVENT_GHOST = 2;
+	static final int EVENT_JUMP = 3;
+
+	private MazeGraph graph;
+	private byte[] buffer = new byte[4096];
+	private int length = 0;
+	private int moves = 0;
+	private long lastMicros = 0;
+	private long lastNodes = 0;
+
+	GameRecorder(MazeGraph graph, State startState, long seed, int evalFunction) {
+		this.graph = graph;
+		writeInt(MAGIC);
+		writeVarint(VERSION);
+		writeVarint(graph.getRows());
+		writeVarint(graph.getCols());
+		writeVarint(graph.getNumPellets());
+		writeLong(seed);
+		writeVarint(evalFunction);
+		writeVarint(startState.getHupmanCell());
+		writeVarint(startState.getNumGhosts());
+		for (int i = 0; i < startState.getNumGhosts(); i++) {
+			writeVarint(startState.getGhostCell(i));
+		}
+		writeVarint(startState.getTurn());
+		writeVarint(startState.getPelletWords());
+		for (int i = 0; i < startState.getPelletWords(); i++) {
+			writeLong(startState.getPelletWord(i));
+		}
+	}
+
+	//an agent (0 for hupman, ghost i + 1) moved between two cells
+	void recordMove(int agent, int fromCell, int toCell, long nanos, long nodes) {
+		moves++;
+		int neighbour = -1;
+		for (int i = 0; i < graph.getDegree(fromCell); i++) {
+			if (graph.getNeighbour(fromCell, i) == toCell) {
+				neighbour = i;
+				break;
+			}
+		}
+		if (neighbour < 0) {
+			writeVarint(((long) agent << 2) | EVENT_JUMP);
+			writeVarint(toCell);
+			return;
+		}
+
+		long micros = nanos / 1000;
+		writeVarint(((long) (agent * 4 + neighbour)) << 2 | EVENT_MOVE);
+		writeVarint(zigzag(micros - lastMicros));
+		writeVarint(zigzag(nodes - lastNodes));
+		lastMicros = micros;
+		lastNodes = nodes;
+	}
+
+	//a click during the game, "event" is EVENT_HUPMAN or EVENT_GHOST
+	void recordClick(int event, int cell) {
+		writeVarint(((long) cell << 2) | event);
+	}
+
+	int size() {
+		return length;
+	}
+
+	int getMoves() {
+		return moves;
+	}
+
+	void save(String filename) throws IOException {
+		try (OutputStream out = new FileOutputStream(filename)) {
+			out.write(buffer, 0, length);
+		}
+	}
+
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private void ensureSpace(int bytes) {
+		if (length + bytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+		}
+	}
+
+	private void writeVarint(long value) {
+		ensureSpace(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeInt(int value) {
+		ensureSpace(4);
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			buffer[length++] = (byte) (value >>> shift);
+		}
+	}
+
+	private void writeLong(long value) {
+		ensureSpace(8);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			buffer[length++] = (byte) (value >>> shift);
+		}
+	}
+}
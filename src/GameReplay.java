@@ -0,0 +1,236 @@
+/*
+ * Matthew Clark
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+//a game recorded by GameRecorder, decoded once into arrays so it can be stepped through and seeked
+//without searching again
+//the state after every KEYFRAME_INTERVAL events is kept, so seeking replays at most that many events
+class GameReplay {
+	private static final int KEYFRAME_INTERVAL = 64;
+
+	private MazeGraph graph;
+	private long seed;
+	private int evalFunction;
+	private int length = 0;
+	private int[] kinds = new int[256];
+	private int[] agents = new int[256];		//the agent that moved, or -1 for a click
+	private int[] values = new int[256];		//neighbour index, or the cell for jumps and clicks
+	private long[] micros = new long[256];
+	private long[] nodes = new long[256];
+	private State[] keyframes;
+
+	//reading position in the file
+	private byte[] data;
+	private int pos = 0;
+
+	private GameReplay(MazeGraph graph, byte[] data) throws IOException {
+		this.graph = graph;
+		this.data = data;
+
+		if (data.length < 4 || readInt() != GameRecorder.MAGIC) throw new IOException("not a hupman recording");
+		int version = readSmall();
+		if (version != GameRecorder.VERSION) throw new IOException("unknown recording version " + version);
+		int rows = readSmall();
+		int cols = readSmall();
+		int pellets = readSmall();
+		if (rows != graph.getRows() || cols != graph.getCols() || pellets != graph.getNumPellets()) {
+			throw new IOException("recorded on a " + cols + "x" + rows + " maze with " + pellets + " pellets");
+		}
+		seed = readLong();
+		evalFunction = readSmall();
+
+		State startState = new State();
+		startState.setHupmanCell(readCell());
+		int numGhosts = readSmall();
+		for (int i = 0; i < numGhosts; i++) {
+			startState.addGhost(readCell());
+		}
+		int turn = readSmall();
+		if (turn > numGhosts) throw new IOException("corrupt recording");
+		startState.setTurn(turn);
+		startState.clearPellets();
+		int words = readSmall();
+		for (int word = 0; word < words; word++) {
+			long bits = readLong();
+			for (; bits != 0; bits &= bits - 1) {
+				int pellet = (word << 6) + Long.numberOfTrailingZeros(bits);
+				if (pellet >= pellets) throw new IOException("corrupt recording");
+				startState.addPellet(pellet);
+			}
+		}
+
+		//decode every event, checking it against the state it applies to
+		State state = new State(startState);
+		State[] frames = new State[16];
+		frames[0] = new State(startState);
+		long lastMicros = 0, lastNodes = 0;
+		while (pos < data.length) {
+			if (length == kinds.length) grow();
+			long tag = readVarint();
+			int kind = (int) (tag & 3);
+			long value = tag >>> 2;
+			kinds[length] = kind;
+			if (kind == GameRecorder.EVENT_MOVE) {
+				agents[length] = (int) (value >>> 2);
+				values[length] = (int) (value & 3);
+				lastMicros += unzigzag(readVarint());
+				lastNodes += unzigzag(readVarint());
+				micros[length] = lastMicros;
+				nodes[length] = lastNodes;
+				if (agents[length] < 0 || agents[length] > state.getNumGhosts()
+						|| values[length] >= graph.getDegree(getAgentCell(state, agents[length]))) {
+					throw new IOException("corrupt recording");
+				}
+			} else if (kind == GameRecorder.EVENT_JUMP) {
+				agents[length] = (int) value;
+				values[length] = readCell();
+				if (agents[length] < 0 || agents[length] > state.getNumGhosts()) throw new IOException("corrupt recording");
+			} else {
+				agents[length] = -1;
+				if (value >= graph.getNumCells() || !graph.contains((int) value)) throw new IOException("corrupt recording");
+				values[length] = (int) value;
+			}
+
+			apply(state, length);
+			length++;
+			if (length % KEYFRAME_INTERVAL == 0) {
+				if (length / KEYFRAME_INTERVAL == frames.length) frames = Arrays.copyOf(frames, frames.length * 2);
+				frames[length / KEYFRAME_INTERVAL] = new State(state);
+			}
+		}
+		keyframes = frames;
+		this.data = null;
+	}
+
+	static GameReplay read(String filename, MazeGraph graph) throws IOException {
+		return new GameReplay(graph, Files.readAllBytes(Paths.get(filename)));
+	}
+
+	//number of events, the positions go from 0 (the start) to getLength() (after the last event)
+	int getLength() {
+		return length;
+	}
+
+	long getSeed() {
+		return seed;
+	}
+
+	int getEvalFunction() {
+		return evalFunction;
+	}
+
+	//state after the first "position" events
+	State getState(int position) {
+		State state = new State(keyframes[position / KEYFRAME_INTERVAL]);
+		for (int i = position - position % KEYFRAME_INTERVAL; i < position; i++) {
+			apply(state, i);
+		}
+		return state;
+	}
+
+	//applies one event to the state before it, the same way the game did
+	void apply(State state, int event) {
+		int kind = kinds[event];
+		if (kind == GameRecorder.EVENT_HUPMAN) {
+			state.setHupmanCell(values[event]);
+		} else if (kind == GameRecorder.EVENT_GHOST) {
+			Hupman.toggleGhost(state, values[event]);
+		} else {
+			int agent = agents[event];
+			int cell = (kind == GameRecorder.EVENT_JUMP) ? values[event]
+					: graph.getNeighbour(getAgentCell(state, agent), values[event]);
+			state.setTurn(agent);
+			Searcher.moveAgent(state, cell);
+
+			//every move eats the pellet under hupman
+			int pellet = graph.getPelletAt(state.getHupmanCell());
+			if (state.hasPellet(pellet)) {
+				state.setUneatenSteps(0);
+				state.removePellet(pellet);
+			}
+		}
+	}
+
+	//the move that took longest to search, or -1 if there were no timed moves
+	int getSlowestMove() {
+		int slowest = -1;
+		for (int i = 0; i < length; i++) {
+			if (kinds[i] == GameRecorder.EVENT_MOVE && (slowest < 0 || micros[i] > micros[slowest])) slowest = i;
+		}
+		return slowest;
+	}
+
+	String describe(int event) {
+		String text = "Move " + (event + 1) + " of " + length + ": ";
+		int kind = kinds[event];
+		if (kind == GameRecorder.EVENT_HUPMAN) return text + "hupman placed";
+		if (kind == GameRecorder.EVENT_GHOST) return text + "ghost added or removed";
+
+		String agent = (agents[event] == 0) ? "hupman" : "ghost " + agents[event];
+		if (kind == GameRecorder.EVENT_JUMP) return text + agent;
+		return text + String.format("%s, %.1f ms, %d nodes", agent, micros[event] / 1000.0, nodes[event]);
+	}
+
+	static int getAgentCell(State state, int agent) {
+		return (agent == 0) ? state.getHupmanCell() : state.getGhostCell(agent - 1);
+	}
+
+	private void grow() {
+		int size = kinds.length * 2;
+		kinds = Arrays.copyOf(kinds, size);
+		agents = Arrays.copyOf(agents, size);
+		values = Arrays.copyOf(values, size);
+		micros = Arrays.copyOf(micros, size);
+		nodes = Arrays.copyOf(nodes, size);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private long readVarint() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (pos >= data.length) throw new IOException("recording ends in the middle of a move");
+			byte b = data[pos++];
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+		throw new IOException("corrupt recording");
+	}
+
+	//a varint that has to fit an int
+	private int readSmall() throws IOException {
+		long value = readVarint();
+		if (value > Integer.MAX_VALUE) throw new IOException("corrupt recording");
+		return (int) value;
+	}
+
+	private int readCell() throws IOException {
+		int cell = readSmall();
+		if (cell >= graph.getNumCells() || !graph.contains(cell)) throw new IOException("corrupt recording");
+		return cell;
+	}
+
+	private int readInt() throws IOException {
+		return (int) readFixed(4);
+	}
+
+	private long readLong() throws IOException {
+		return readFixed(8);
+	}
+
+	private long readFixed(int bytes) throws IOException {
+		if (pos + bytes > data.length) throw new IOException("recording ends in the middle of the header");
+		long value = 0;
+		for (int i = 0; i < bytes; i++) {
+			value = (value << 8) | (data[pos++] & 0xFF);
+		}
+		return value;
+	}
+}
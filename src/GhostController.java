@@ -0,0 +1,160 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//cheap ways of moving a ghost, so a ghost's turn doesn't cost a full search like hupman's
+//each policy looks at the ghost's neighbours and nothing else, so with dozens of ghosts a round costs
+//about one search (hupman's) instead of one per agent
+//	search:		the ghost is moved by the same search as hupman, like it always was
+//	chase:		a step along the shortest path to hupman
+//	scatter:	heads for its own corner of the maze for SCATTER_STEPS of every SCATTER_STEPS + CHASE_STEPS
+//				hupman steps, and chases the rest of the time, so the ghosts don't all bunch up behind hupman
+//	random:		any move
+//chase and scatter play the best move with the ghost chance and one of the others otherwise, like min()
+//the moves aren't searches, so they are left out of the search metrics
+//distances come from the DistanceTable, or on bigger mazes from BFS fields out of the target cell:
+//one out of hupman's cell, built once a round and shared by every ghost, and one per corner
+class GhostController {
+	static final int SEARCH 	= 0;
+	static final int CHASE 		= 1;
+	static final int SCATTER 	= 2;
+	static final int RANDOM 	= 3;
+	static final String[] NAMES = {"search", "chase", "scatter", "random"};
+
+	private static final int SCATTER_STEPS = 7;
+	private static final int CHASE_STEPS = 20;
+
+	private MazeGraph graph;
+	private DistanceTable distTable;
+
+	//corners in the order the ghosts are given them: top left, top right, bottom right, bottom left
+	private int[] cornerCells = new int[4];
+	private int[][] cornerFields = new int[4][];
+	private int[] hupmanField = null;
+	private int hupmanFieldCell = -1;
+	private int[] queue = null;
+
+	GhostController(MazeGraph graph, DistanceTable distTable) {
+		this.graph = graph;
+		this.distTable = distTable;
+
+		//the cell connected to the maze closest to each corner
+		int[] cornerX = {0, graph.getCols() - 1, graph.getCols() - 1, 0};
+		int[] cornerY = {0, 0, graph.getRows() - 1, graph.getRows() - 1};
+		for (int i = 0; i < 4; i++) {
+			int bestDist = Integer.MAX_VALUE;
+			for (int cell = 0; cell < graph.getNumCells(); cell++) {
+				if (!graph.contains(cell)) continue;
+				int dist = Math.abs(graph.cellX(cell) - cornerX[i]) + Math.abs(graph.cellY(cell) - cornerY[i]);
+				if (dist < bestDist) {
+					bestDist = dist;
+					cornerCells[i] = cell;
+				}
+			}
+		}
+	}
+
+	//policy named by one of NAMES, or -1
+	static int parse(String name) {
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equalsIgnoreCase(name)) return i;
+		}
+		return -1;
+	}
+
+	//moves the ghost whose turn it is and returns the new state, with hupman's death applied
+	//"policy" can't be SEARCH, the caller searches for those ghosts
+	State move(State rootState, int policy, double ghostChance, SplittableRandom random) {
+		int ghost = rootState.getTurn() - 1;
+		int ghostCell = rootState.getGhostCell(ghost);
+		int degree = graph.getDegree(ghostCell);
+
+		int cell = ghostCell;
+		if (degree > 0) {
+			if (policy == RANDOM) {
+				cell = graph.getNeighbour(ghostCell, random.nextInt(degree));
+			} else {
+				boolean scatter = (policy == SCATTER && rootState.getSteps() % (SCATTER_STEPS + CHASE_STEPS) < SCATTER_STEPS);
+				int target = scatter ? cornerCells[ghost % 4] : rootState.getHupmanCell();
+				cell = getBestMove(ghostCell, target, scatter ? getCornerField(ghost % 4) : getHupmanField(target),
+						ghostChance, random);
+			}
+		}
+
+		State bestState = new State(rootState);
+		Searcher.moveAgent(bestState, cell);
+		if (cell == bestState.getHupmanCell()) bestState.setDead(true);
+		return bestState;
+	}
+
+	//the neighbour closest to the target with the ghost chance, otherwise one of the others
+	private int getBestMove(int ghostCell, int target, int[] field, double ghostChance, SplittableRandom random) {
+		int degree = graph.getDegree(ghostCell);
+		int best = 0;
+		int bestDist = Integer.MAX_VALUE;
+		int ties = 0;
+		for (int i = 0; i < degree; i++) {
+			int dist = getDistance(graph.getNeighbour(ghostCell, i), target, field);
+			if (dist == DistanceTable.UNREACHABLE) dist = Integer.MAX_VALUE - 1;
+			if (dist < bestDist) {
+				bestDist = dist;
+				best = i;
+				ties = 1;
+			} else if (dist == bestDist && random.nextInt(++ties) == 0) {
+				best = i;
+			}
+		}
+
+		if (degree > 1 && random.nextDouble() >= ghostChance) {
+			int other = random.nextInt(degree - 1);
+			best = (other >= best) ? other + 1 : other;
+		}
+		return graph.getNeighbour(ghostCell, best);
+	}
+
+	private int getDistance(int cell, int target, int[] field) {
+		return (field != null) ? field[cell] : distTable.distance(cell, target);
+	}
+
+	//fields are only needed when there is no distance table
+	private int[] getHupmanField(int hupmanCell) {
+		if (distTable != null) return null;
+		if (hupmanCell != hupmanFieldCell) {
+			if (hupmanField == null) hupmanField = new int[graph.getNumCells()];
+			fillField(hupmanField, hupmanCell);
+			hupmanFieldCell = hupmanCell;
+		}
+		return hupmanField;
+	}
+
+	private int[] getCornerField(int corner) {
+		if (distTable != null) return null;
+		if (cornerFields[corner] == null) {
+			cornerFields[corner] = new int[graph.getNumCells()];
+			fillField(cornerFields[corner], cornerCells[corner]);
+		}
+		return cornerFields[corner];
+	}
+
+	//breadth first search out from the start cell
+	private void fillField(int[] field, int start) {
+		if (queue == null) queue = new int[graph.getNumCells()];
+		Arrays.fill(field, DistanceTable.UNREACHABLE);
+		int head = 0, tail = 0;
+		field[start] = 0;
+		queue[tail++] = start;
+		while (head < tail) {
+			int cell = queue[head++];
+			for (int i = 0; i < graph.getDegree(cell); i++) {
+				int adjCell = graph.getNeighbour(cell, i);
+				if (field[adjCell] == DistanceTable.UNREACHABLE) {
+					field[adjCell] = field[cell] + 1;
+					queue[tail++] = adjCell;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+
+//ghost distances for the evaluator
+//danger[] is the fewest moves any ghost needs to reach a cell from where the ghosts stood at the start of
+//the turn, so the evaluator can skip looking for ghosts on cells none of them can have reached yet
+//mazes too big for a DistanceTable get BFS distance fields from the cells the ghosts move through, each
+//holding only the REGION_CELLS cells closest to hupman, the cells a search from there can take hupman to
+//the fields are kept between searches up to FIELD_BUDGET, past which the least recently used one is
+//refilled for the new cell, and all of them are dropped when hupman nears the edge of the region
+class GhostField {
+	static final int OUTSIDE = -2;	//distance() for a cell outside the region
+
+	private static final int FIELD_BUDGET = 32 * 1024 * 1024;	//bytes of fields kept between searches
+	private static final int REGION_CELLS = 16384;
+
+	private MazeGraph graph;
+	private int[] danger;
+	private int[] queue;
+	private int[] steps;
+	private int rootSteps = 0;
+	private int rootGhosts = -1;
+	private int rootHupman = -1;
+	private boolean regionChecked = true;
+
+	//region[i] is the i-th closest cell to the region's centre, at regionDepths[i] moves from it
+	private int[] regionIndex;
+	private int[] region;
+	private int[] regionDepths;
+	private int regionSize = 0;
+
+	//field slots, cellSlots[cell] is the slot holding the field from a cell or -1
+	private int[] cellSlots;
+	private int[] slotCells;
+	private int[][] slotFields;
+	private long[] slotUses;
+	private long numUses = 0;
+	private int numFields = 0;
+
+	GhostField(MazeGraph graph) {
+		this.graph = graph;
+		int numCells = graph.getNumCells();
+		danger = new int[numCells];
+		queue = new int[numCells];
+		steps = new int[numCells];
+		Arrays.fill(steps, Integer.MAX_VALUE);
+		regionIndex = new int[numCells];
+		Arrays.fill(regionIndex, -1);
+		int maxRegion = Math.min(numCells, REGION_CELLS);
+		region = new int[maxRegion];
+		regionDepths = new int[maxRegion];
+		cellSlots = new int[numCells];
+		Arrays.fill(cellSlots, -1);
+		int maxFields = Math.max(FIELD_BUDGET / 4 / maxRegion, 1);
+		slotCells = new int[maxFields];
+		slotFields = new int[maxFields][];
+		slotUses = new long[maxFields];
+	}
+
+	//builds the danger map from the ghosts in the state at the start of a turn
+	void update(State rootState) {
+		rootSteps = rootState.getSteps();
+		rootGhosts = rootState.getNumGhosts();
+
+		int head = 0, tail = 0;
+		Arrays.fill(danger, Integer.MAX_VALUE);
+		for (int i = 0; i < rootGhosts; i++) {
+			int cell = rootState.getGhostCell(i);
+			if (danger[cell] != 0) {
+				danger[cell] = 0;
+				queue[tail++] = cell;
+			}
+		}
+		while (head < tail) {
+			int cell = queue[head++];
+			int degree = graph.getDegree(cell);
+			for (int i = 0; i < degree; i++) {
+				int adjCell = graph.getNeighbour(cell, i);
+				if (danger[adjCell] == Integer.MAX_VALUE) {
+					danger[adjCell] = danger[cell] + 1;
+					queue[tail++] = adjCell;
+				}
+			}
+		}
+
+		//the region is only looked at once a distance is asked for, mazes with a DistanceTable never do
+		rootHupman = rootState.getHupmanCell();
+		regionChecked = false;
+	}
+
+	//false only if no ghost can be on the cell in a state searched from the last update
+	//ghosts move once per hupman step, and may get one move in before hupman's first
+	boolean canHaveGhost(State testState, int cell) {
+		int ghostMoves = testState.getSteps() - rootSteps + 1;
+		if (ghostMoves <= 0 || testState.getNumGhosts() != rootGhosts) return true;
+		return danger[cell] <= ghostMoves;
+	}
+
+	//moves between a cell and a ghost's cell, DistanceTable.UNREACHABLE, or OUTSIDE for a cell too far from
+	//where hupman was when the region was built
+	int distance(int cell, int ghostCell) {
+		if (!regionChecked) {
+			checkRegion();
+			regionChecked = true;
+		}
+		int index = regionIndex[cell];
+		if (index < 0) return OUTSIDE;
+
+		int slot = cellSlots[ghostCell];
+		if (slot < 0) slot = loadField(ghostCell);
+		slotUses[slot] = ++numUses;
+		return slotFields[slot][index];
+	}
+
+	//recentres the region once hupman is past half way to its edge
+	private void checkRegion() {
+		if (!graph.contains(rootHupman)) return;
+		int index = regionIndex[rootHupman];
+		if (index < 0 || regionDepths[index] > regionDepths[regionSize - 1] / 2) {
+			buildRegion(rootHupman);
+		}
+	}
+
+	//the REGION_CELLS cells closest to a cell, the fields from the old region no longer fit it
+	private void buildRegion(int centre) {
+		for (int i = 0; i < regionSize; i++) {
+			regionIndex[region[i]] = -1;
+		}
+		for (int i = 0; i < numFields; i++) {
+			cellSlots[slotCells[i]] = -1;
+		}
+		numFields = 0;
+
+		regionSize = 0;
+		regionIndex[centre] = regionSize;
+		region[regionSize] = centre;
+		regionDepths[regionSize++] = 0;
+		for (int head = 0; head < regionSize && regionSize < region.length; head++) {
+			int cell = region[head];
+			int degree = graph.getDegree(cell);
+			for (int i = 0; i < degree && regionSize < region.length; i++) {
+				int adjCell = graph.getNeighbour(cell, i);
+				if (regionIndex[adjCell] < 0) {
+					regionIndex[adjCell] = regionSize;
+					region[regionSize] = adjCell;
+					regionDepths[regionSize++] = regionDepths[head] + 1;
+				}
+			}
+		}
+	}
+
+	//fills a free slot, or the least recently used one, with the field from a cell
+	private int loadField(int start) {
+		int slot;
+		if (numFields < slotFields.length) {
+			slot = numFields++;
+			if (slotFields[slot] == null) slotFields[slot] = new int[region.length];
+		} else {
+			slot = 0;
+			for (int i = 1; i < numFields; i++) {
+				if (slotUses[i] < slotUses[slot]) slot = i;
+			}
+			cellSlots[slotCells[slot]] = -1;
+		}
+		fillField(slotFields[slot], start);
+		slotCells[slot] = start;
+		cellSlots[start] = slot;
+		return slot;
+	}
+
+	//BFS from a cell until every cell of the region has its distance, steps[] is put back to unvisited
+	//for the cells the search queued so the next search needn't clear the whole maze
+	private void fillField(int[] field, int start) {
+		Arrays.fill(field, DistanceTable.UNREACHABLE);
+		if (!graph.contains(start)) return;
+
+		int head = 0, tail = 0;
+		int found = (regionIndex[start] >= 0) ? 1 : 0;
+		if (found > 0) field[regionIndex[start]] = 0;
+		steps[start] = 0;
+		queue[tail++] = start;
+		while (head < tail && found < regionSize) {
+			int cell = queue[head++];
+			int degree = graph.getDegree(cell);
+			for (int i = 0; i < degree; i++) {
+				int adjCell = graph.getNeighbour(cell, i);
+				if (steps[adjCell] == Integer.MAX_VALUE) {
+					steps[adjCell] = steps[cell] + 1;
+					queue[tail++] = adjCell;
+					int index = regionIndex[adjCell];
+					if (index >= 0) {
+						field[index] = steps[adjCell];
+						found++;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < tail; i++) {
+			steps[queue[i]] = Integer.MAX_VALUE;
+		}
+	}
+}
@@ -3,6 +3,8 @@
  */
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -10,195 +12,30 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.Math.sqrt;
 
-class Node {
-	private ArrayList<Node> adjList = new ArrayList<>();
-	private Point nodePos;
-	private boolean visited = false;
-	private Node parent = null;
-
-	//A* variables
-	private int gCost = 0;
-	private int hCost = 0;
-
-	Node(Point pos) {
-		nodePos = pos;
-	}
-
-	void addNode(Node node) {
-		adjList.add(node);
-	}
-
-	void setVisited(boolean v) {
-		visited = v;
-	}
-
-	boolean getVisited() {
-		return visited;
-	}
-
-	void setParent(Node p) {
-		parent = p;
-	}
-
-	Node getParent() {
-		return parent;
-	}
-
-	ArrayList<Node> getAdjacentNodes() {
-		return adjList;
-	}
-
-	Point getPos() {
-		return nodePos;
-	}
-
-	//A* functions
-	void setGCost(int g) {
-		gCost = g;
-	}
-
-	int getGCost() {
-		return gCost;
-	}
-
-	void setHCost(int h) {
-		hCost = h;
-	}
-
-	int getFCost() {
-		return hCost + gCost;
-	}
-}
-
-class State {
-	private Point locHupman = null;
-	private ArrayList<Point> locAllGhosts = new ArrayList<>();
-	private ArrayList<Point> locAllPellets = new ArrayList<>();
-	private int turnNum = 0;
-	private double weight = 0;
-	private boolean dead = false;
-	private int uneatenSteps = 0;
-	private int totalSteps = 0;
-
-	State() {}
-
-	State(State oldState) {
-		locHupman = new Point(oldState.getHupmanLocation());
-		locAllGhosts = new ArrayList<>(oldState.getGhostLocations());
-		locAllPellets = new ArrayList<>(oldState.getPelletLocations());
-		turnNum = oldState.getTurn();
-		dead = oldState.getDead();
-		uneatenSteps = oldState.getUneatenSteps();
-		totalSteps = oldState.getSteps();
-	}
-
-	public void setHupmanLocation(Point newPos) {
-		locHupman = newPos;
-	}
-	public Point getHupmanLocation() {
-		return locHupman;
-	}
-
-	public void addGhost(Point ghostPoint) {
-		locAllGhosts.add(ghostPoint);
-	}
-	public void removeGhost(int index) {
-		locAllGhosts.remove(index);
-	}
-	public void setGhostLocation(Point newPos, int ghostNum) {
-		locAllGhosts.set(ghostNum, newPos);
-	}
-	public ArrayList<Point> getGhostLocations() {
-		return locAllGhosts;
-	}
-
-	public void clearPellets() {
-		locAllPellets.clear();
-	}
-	public void addPellet(Point pelletPoint) {
-		locAllPellets.add(pelletPoint);
-	}
-	public void removePellet(Point pelletPoint) {
-		for (int i = 0; i < locAllPellets.size(); i++) {
-			if (locAllPellets.get(i).equals(pelletPoint)) {
-				locAllPellets.remove(i);
-				i = locAllPellets.size();
-			}
-		}
-	}
-	public ArrayList<Point> getPelletLocations() {
-		return locAllPellets;
-	}
-
-	public void nextTurn() {
-		turnNum++;
-		if (turnNum > locAllGhosts.size()) {
-			turnNum = 0;
-		}
-	}
-	public void setTurn(int newTurn) {
-		turnNum = newTurn;
-	}
-	public int getTurn() {
-		return turnNum;
-	}
-	public int getPrevTurn() {
-		if (turnNum - 1 < 0) {
-			return locAllGhosts.size();
-		} else {
-			return turnNum - 1;
-		}
-	}
-
-	public void setWeight(double newWeight) {
-		weight = newWeight;
-	}
-	public double getWeight() {
-		return weight;
-	}
-
-	public void setDead(boolean isDead) {
-		dead = isDead;
-	}
-	public boolean getDead() {
-		return dead;
-	}
-
-	public void setUneatenSteps(int steps) {
-		uneatenSteps = steps;
-	}
-	public int getUneatenSteps() {
-		return uneatenSteps;
-	}
-
-	public void resetSteps() {
-		totalSteps = 0;
-	}
-	public void addStep() {
-		totalSteps++;
-	}
-	public int getSteps() {
-		return totalSteps;
-	}
-}
-
 public class Hupman extends JPanel{
 
 	private int numRows, numCols, numPellets;
 	private int[][] arrMaze;
 	private int[][] arrPellets;
-	private Map<String, Node> mapNodes = new HashMap<>();
+	private MazeGraph graph = null;
+	private Evaluator evaluator = null;
+	private Searcher searcher = null;
+	private ParallelSearch parallelSearch = null;
+	private MonteCarloSearch monteCarlo = null;
+	private GhostController ghostController = null;
+	private SearchMetrics metrics = SearchMetrics.register("SearchMetrics");	//over JMX, reset every game
 	private boolean bFileRead = false;
 	private int windowWidth = 600;
 	private int windowHeight = 600;
@@ -207,75 +44,183 @@ public class Hupman extends JPanel{
 	private int pelletRadius = gridSize / 5;
 	private int hupmanRadius = gridSize / 3;
 	private State currentState = new State();
-	long timePrev = 0;
+	private volatile boolean gameRunning = false;
+	private BufferedImage wallLayer = null;	//background and walls, drawn once per maze
+	private BasicStroke wallStroke = new BasicStroke(3.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+	private TurnScheduler scheduler = new TurnScheduler();
+
+	//every game's random choices come from one seed, printed with the score
+	//run with -Dhupman.seed=<seed> to play every game with the same one
+	private Long fixedSeed = Long.getLong("hupman.seed");
+	private SplittableRandom seedSource = new SplittableRandom();
+
+	//how the ghosts pick their moves, run with -Dhupman.ghosts=chase|scatter|random to move them without a search
+	private int ghostPolicy = getGhostPolicy();
+
+	//run with -Dhupman.macro=true to have the search commit hupman to corridors (see Searcher) and to take
+	//path lengths on mazes too big for a DistanceTable from the junction graph instead of A*
+	private boolean macroMoves = Boolean.getBoolean("hupman.macro");
+
+	//the game thread owns currentState while a game runs: clicks are queued for it to apply between
+	//turns and the EDT only paints the last snapshot published
+	private AtomicReference<RenderSnapshot> snapshot = new AtomicReference<>();
+	private ConcurrentLinkedQueue<int[]> pendingEdits = new ConcurrentLinkedQueue<>();	//{button, cell}
+
+	//every game is recorded into memory as it is played and can be saved once it ends
+	private GameRecorder recorder = null;	//the game being played, or the last one
+	private long lastTurnNanos = 0;
+	private long lastTurnNodes = 0;
+
+	//replay mode shows a recorded game instead of the current state, paced by the scheduler like a game
+	private volatile GameReplay replay = null;
+	private State replayState = null;
+	private int replayPosition = 0;
+	private boolean replayThreadRunning = false;
+	private JSlider replaySlider = new JSlider(0, 0, 0);
+	private JLabel replayInfo = new JLabel(" ");
+	private boolean updatingSlider = false;		//only used on the EDT
+
+	//search modes
+	private static final int SEARCH_COPY 		= 0;	//minimax() copying a State per child
+	private static final int SEARCH_IN_PLACE 	= 1;	//Searcher making and unmaking moves on one State
+	private static final int SEARCH_PARALLEL 	= 2;	//ParallelSearch splitting the root moves over threads
+	private static final int FUNC_MONTE_CARLO	= 2;	//third button of the start dialog
+	private int searchThreads = Runtime.getRuntime().availableProcessors();
+	private int searchMode = (searchThreads > 1) ? SEARCH_PARALLEL : SEARCH_IN_PLACE;
+	private int tableSizeMB = 16;	//transposition table memory budget
+	private long moveTimeMs = 50;	//time per move of the timed searches, the wait before the move is spent pondering
+	private int maxDepth = 32;		//deepest the in-place search goes
+	private int copyDepth = 3;		//fixed depth of the copying search
+	private int treeNodes = 1 << 18;	//most nodes the Monte Carlo tree holds
 
 	//score
 	private int totalSteps = 0;
 	private int pelletsEaten = 0;
 
-	//weight constants
-	private static final int WT_HAS_PELLET 		= 0;
-	private static final int WT_HAS_GHOST 		= 1;
-	private static final int WT_DIST_PELLETS 	= 2;
-	private static final int WT_DIST_GHOSTS 	= 3;
-	private static final int WT_TOTAL_STEPS 	= 4;
-
-	Hupman() {
-		loadFile();
+	//"filename" is the maze named on the command line, or null to ask for one
+	Hupman(String filename) {
+		loadFile(filename);
 		createGraph();
 		resetPelletNodes();
 
 		setPreferredSize(new Dimension(windowWidth, windowHeight));
 
-		repaint();
+		publish();
 
 		//set dead so we can start the game
 		currentState.setDead(true);
 
 		addMouseListener(new MouseAdapter() {
 			public void mouseClicked(MouseEvent e) {
+				//a recorded game can't be changed
+				if (replay != null) return;
+
 				Point mousePos = e.getPoint();
 
 				int gridX = (mousePos.x - gridOffset) / gridSize;
 				int gridY = (mousePos.y - gridOffset) / gridSize;
 
-				if (gridX >= 0 && gridX < numCols && gridY >= 0 && gridY < numRows) {
-					if (e.getButton() == MouseEvent.BUTTON1) {
-						currentState.setHupmanLocation(new Point(gridX, gridY));
-						paintImmediately(0, 0, windowHeight, windowWidth);
-					}
-					else if (e.getButton() == MouseEvent.BUTTON3) {
-						ArrayList<Point> locGhosts = currentState.getGhostLocations();
-						boolean ghostThere = false;
-						Point gridPoint = new Point(gridX, gridY);
-						for (int i = 0; i < locGhosts.size(); i++) {
-							if (locGhosts.get(i).equals(gridPoint)) {
-								//break loop and remove ghost instead of adding
-								currentState.removeGhost(i);
-								ghostThere = true;
-								break;
-							}
-						}
-
-						//if ghost not there, add ghost
-						if (!ghostThere) {
-							currentState.addGhost(gridPoint);
-						}
-
-						//repaint ghost removal or addition
-						paintImmediately(0, 0, windowHeight, windowWidth);
-					}
+				//only cells connected to the maze can hold hupman or a ghost
+				if (gridX >= 0 && gridX < numCols && gridY >= 0 && gridY < numRows
+								&& graph.contains(graph.getCell(gridX, gridY))) {
+					pendingEdits.add(new int[] {e.getButton(), graph.getCell(gridX, gridY)});
+
+					//no game thread to pick the click up
+					if (!gameRunning) applyEdits();
 				}
 			}
 		});
 	}
 
-	public void start() {
+	//applies the queued clicks to the current state and shows them
+	private synchronized void applyEdits() {
+		int[] edit;
+		boolean changed = false;
+		while ((edit = pendingEdits.poll()) != null) {
+			int gridCell = edit[1];
+			changed = true;
+			if (edit[0] == MouseEvent.BUTTON1) {
+				currentState.setHupmanCell(gridCell);
+				if (gameRunning) recorder.recordClick(GameRecorder.EVENT_HUPMAN, gridCell);
+			}
+			else if (edit[0] == MouseEvent.BUTTON3) {
+				toggleGhost(currentState, gridCell);
+				if (gameRunning) recorder.recordClick(GameRecorder.EVENT_GHOST, gridCell);
+			}
+		}
+
+		if (changed) publish();
+	}
+
+	//removes the ghost in a cell, or adds one if there isn't one
+	static void toggleGhost(State state, int cell) {
+		boolean ghostThere = false;
+		for (int i = 0; i < state.getNumGhosts(); i++) {
+			if (state.getGhostCell(i) == cell) {
+				//break loop and remove ghost instead of adding
+				state.removeGhost(i);
+				ghostThere = true;
+				break;
+			}
+		}
+
+		//if ghost not there, add ghost
+		if (!ghostThere) {
+			state.addGhost(cell);
+		}
+
+		//the ghost whose turn it was may be gone
+		if (state.getTurn() > state.getNumGhosts()) {
+			state.setTurn(0);
+		}
+	}
+
+	//hands the current state to the EDT and repaints the cells that look different
+	//repaint() only queues the areas, Swing paints them all at once later
+	private void publish() {
+		publish(currentState);
+	}
+
+	private void publish(State state) {
+		RenderSnapshot newSnapshot = new RenderSnapshot(state);
+		RenderSnapshot oldSnapshot = snapshot.getAndSet(newSnapshot);
+		if (oldSnapshot == null) {
+			repaint();
+			return;
+		}
+
+		repaintCell(oldSnapshot.getHupmanCell());
+		repaintCell(newSnapshot.getHupmanCell());
+		for (int i = 0; i < oldSnapshot.getNumGhosts(); i++) {
+			repaintCell(oldSnapshot.getGhostCell(i));
+		}
+		for (int i = 0; i < newSnapshot.getNumGhosts(); i++) {
+			repaintCell(newSnapshot.getGhostCell(i));
+		}
+
+		//pellets eaten or put back
+		int words = Math.max(oldSnapshot.getPelletWords(), newSnapshot.getPelletWords());
+		for (int word = 0; word < words; word++) {
+			long changed = oldSnapshot.getPelletWord(word) ^ newSnapshot.getPelletWord(word);
+			for (; changed != 0; changed &= changed - 1) {
+				repaintCell(graph.getPelletCell((word << 6) + Long.numberOfTrailingZeros(changed)));
+			}
+		}
+	}
+
+	private void repaintCell(int cell) {
+		if (cell < 0) return;
+		repaint(graph.cellX(cell) * gridSize + gridOffset, graph.cellY(cell) * gridSize + gridOffset,
+				gridSize + 1, gridSize + 1);
+	}
+
+	public synchronized void start() {
 		//only run if the game was over
-		if (currentState.getDead()) {
+		if (!gameRunning) {
+			stopReplay();
+
 			//set initial pellet positions
 			resetPelletNodes();
-			resetVisitedNodes();
 			totalSteps = 0;
 
 			//reset current state
@@ -283,56 +228,91 @@ public class Hupman extends JPanel{
 			currentState.setUneatenSteps(0);
 			currentState.resetSteps();
 			currentState.setWeight(0);
+			metrics.reset();
+			searcher.newGame();
+			if (parallelSearch != null) parallelSearch.newGame();
+			monteCarlo.newGame();
+
+			//show the pellets put back
+			publish();
 
 			Object[] options = {"Function 1",
-					"Function 2"};
+					"Function 2",
+					"Monte Carlo"};
 			int func = JOptionPane.showOptionDialog(this, "Which evaluation function do you want to use?", "Evaluation Function",
 					JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
 
+			long seed = (fixedSeed != null) ? fixedSeed : seedSource.nextLong();
+			SplittableRandom random = new SplittableRandom(seed);
+			SplittableRandom ponderRandom = random.split();
+			recorder = new GameRecorder(graph, currentState, seed, func + 1);
+
 			//start in new thread to enable clicking on GUI exit
+			gameRunning = true;
 			Thread t = new Thread(new Runnable() {
 				@Override
 				public void run() {
 					State testState = new State();
 					double ghostChance = 0.7;
-					int depth = 3;
-					int pelletsLeft = currentState.getPelletLocations().size();
-					while ((testState = takeTurn(currentState, depth, func, ghostChance)) != null &&
-							(pelletsLeft = currentState.getPelletLocations().size()) != 0) {
+					int pelletsLeft = currentState.getPelletsLeft();
+					int moveNum = 0;
+					scheduler.startGame();
+					//the next move is searched as soon as the last one is made and held until it is due,
+					//the search after it ponders while it is held
+					//the move that kills hupman is recorded and shown like any other, then the game ends
+					while (!currentState.getDead() && (pelletsLeft = currentState.getPelletsLeft()) != 0) {
+						testState = takeTurn(currentState, func, ghostChance, random, ponderRandom);
+						if (!scheduler.waitForMove(currentState.getNumGhosts() + 1)) break;
+
+						//record the move before it replaces the current state
+						int agent = currentState.getTurn();
+						recorder.recordMove(agent, GameReplay.getAgentCell(currentState, agent),
+								GameReplay.getAgentCell(testState, agent), lastTurnNanos, lastTurnNodes);
+
 						//set the current state to this state
 						currentState = testState;
 
-						//paint new state
-						paintImmediately(0, 0, windowWidth, windowHeight);
-
-						//wait before taking next turn
-						try {
-							long timeNow = System.currentTimeMillis() % 1000;
-							long sleepTime = (200 - (timeNow - timePrev)) / (currentState.getGhostLocations().size() + 1);
-							if (sleepTime > 0) Thread.sleep(sleepTime);
-						} catch (Exception ex) {
-							ex.printStackTrace();
-						}
-						timePrev = System.currentTimeMillis() % 1000;
+						//show the new state (only every few moves in turbo mode) and any clicks made during the turn
+						if (scheduler.shouldDraw(++moveNum)) publish();
+						applyEdits();
 					}
 
+					//turbo mode may not have drawn the last moves
+					publish();
+
 					//GAME HAS ENDED
 					//update scores
+					pelletsLeft = currentState.getPelletsLeft();
 					totalSteps = currentState.getSteps();
 					pelletsEaten = numPellets - pelletsLeft;
 
 					//print if hupman won or died
-					if (pelletsLeft == 0) {
+					if (pelletsLeft == 0 && !currentState.getDead()) {
 						System.out.println("Hupman won!");
 					} else {
 						System.out.println("Hupman died!");
 					}
 
 					//print score
-					System.out.println("Score:\n\tPellets: " + pelletsEaten + "\n\tSteps: " + totalSteps + "\n");
+					System.out.println("Score:\n\tPellets: " + pelletsEaten + "\n\tSteps: " + totalSteps
+							+ "\n\tSeed: " + seed + "\n");
 
-					//set game to ended
+					//print how much of the search the transposition table saved
+					if (searcher.getTranspositionTable() != null) {
+						System.out.printf("Transposition table:\n\tHit rate: %.1f%% (%d of %d probes)\n\n",
+								metrics.getTableHitRate() * 100, metrics.getTableHits(), metrics.getTableProbes());
+					}
+
+					//print what the search did this game
+					System.out.println(metrics.summary());
+
+					//the recording stays in memory until the next game, Save Replay writes it out
+					System.out.printf("Recording:\n\t%d moves in %d bytes\n\n", recorder.getMoves(), recorder.size());
+
+					//set game to ended, then apply clicks made since the last turn
 					currentState.setDead(true);
+					gameRunning = false;
+					applyEdits();
 				}
 			});
 			t.start();
@@ -342,379 +322,163 @@ public class Hupman extends JPanel{
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
 
-		Graphics2D g2 = (Graphics2D) g;
+		if (wallLayer == null) createWallLayer();
+		g.drawImage(wallLayer, 0, 0, null);
 
-		g.setColor(Color.BLACK);
-		g.fillRect(0, 0, windowWidth, windowHeight);
+		//everything else comes from the last published snapshot
+		RenderSnapshot frame = snapshot.get();
+		if (frame == null) return;
 
-		BasicStroke wall = new BasicStroke(3.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+		//pellets and agents have always been filled with the wall stroke set
+		((Graphics2D) g).setStroke(wallStroke);
 
-		g.setColor(Color.BLUE);
-		g2.setStroke(wall);
-		g2.draw(new Rectangle2D.Float(gridOffset, gridOffset, gridSize * arrMaze[0].length, gridSize * arrMaze.length));
-		for (int i = 0; i < numRows; i++) {
-			for (int j = 0; j < numCols; j++) {
-				int xPos = j * gridSize + gridOffset;
-				int yPos = i * gridSize + gridOffset;
-				if (arrMaze[i][j] == 1 || arrMaze[i][j] == 3) {
-					g2.draw(new Line2D.Float(xPos, yPos, xPos + gridSize, yPos));
-				}
-				if (arrMaze[i][j] == 2 || arrMaze[i][j] == 3) {
-					g2.draw(new Line2D.Float(xPos + gridSize, yPos, xPos + gridSize, yPos + gridSize));
-				}
-			}
-		}
+		//only pellets in cells inside the clip need drawing
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) clip = new Rectangle(0, 0, windowWidth, windowHeight);
+		int firstCol = Math.max((clip.x - gridOffset) / gridSize, 0);
+		int lastCol = Math.min((clip.x + clip.width - gridOffset) / gridSize, numCols - 1);
+		int firstRow = Math.max((clip.y - gridOffset) / gridSize, 0);
+		int lastRow = Math.min((clip.y + clip.height - gridOffset) / gridSize, numRows - 1);
 
-		ArrayList<Point> locAllPellets = currentState.getPelletLocations();
-		if (locAllPellets.size() > 0) {
-			g.setColor(Color.WHITE);
-			for (int i = 0; i < locAllPellets.size(); i++) {
-				int xPos = (int)locAllPellets.get(i).getX() * gridSize + gridSize / 2 - pelletRadius + gridOffset;
-				int yPos = (int)locAllPellets.get(i).getY() * gridSize + gridSize / 2 - pelletRadius + gridOffset;
+		g.setColor(Color.WHITE);
+		for (int i = firstRow; i <= lastRow; i++) {
+			for (int j = firstCol; j <= lastCol; j++) {
+				if (!frame.hasPellet(graph.getPelletAt(graph.getCell(j, i)))) continue;
+
+				int xPos = j * gridSize + gridSize / 2 - pelletRadius + gridOffset;
+				int yPos = i * gridSize + gridSize / 2 - pelletRadius + gridOffset;
 				g.fillOval(xPos, yPos, pelletRadius * 2, pelletRadius * 2);
 			}
 		}
 
-		Point locHupman = currentState.getHupmanLocation();
-		if (locHupman != null) {
+		int cellHupman = frame.getHupmanCell();
+		if (cellHupman >= 0) {
 			g.setColor(Color.YELLOW);
-			int xPos = (int)locHupman.getX() * gridSize + gridSize / 2 - hupmanRadius + gridOffset;
-			int yPos = (int)locHupman.getY() * gridSize + gridSize / 2 - hupmanRadius + gridOffset;
+			int xPos = graph.cellX(cellHupman) * gridSize + gridSize / 2 - hupmanRadius + gridOffset;
+			int yPos = graph.cellY(cellHupman) * gridSize + gridSize / 2 - hupmanRadius + gridOffset;
 			g.fillOval(xPos, yPos, hupmanRadius * 2, hupmanRadius * 2);
 		}
 
-		ArrayList<Point> locAllGhosts = currentState.getGhostLocations();
-		if (locAllGhosts.size() > 0) {
+		if (frame.getNumGhosts() > 0) {
 			g.setColor(Color.RED);
-			for (int i = 0; i < locAllGhosts.size(); i++) {
-				int xPos = (int)locAllGhosts.get(i).getX() * gridSize + gridSize / 2 - hupmanRadius + gridOffset;
-				int yPos = (int)locAllGhosts.get(i).getY() * gridSize + gridSize / 2 - hupmanRadius + gridOffset;
+			for (int i = 0; i < frame.getNumGhosts(); i++) {
+				int cellGhost = frame.getGhostCell(i);
+				int xPos = graph.cellX(cellGhost) * gridSize + gridSize / 2 - hupmanRadius + gridOffset;
+				int yPos = graph.cellY(cellGhost) * gridSize + gridSize / 2 - hupmanRadius + gridOffset;
 				g.fillOval(xPos, yPos, hupmanRadius * 2, hupmanRadius * 2);
 			}
 		}
 	}
 
-	private void loadFile() {
-		String filename;
-		BufferedReader reader = null;
+	//draws the background and walls into an image once, so painting a frame is one image copy
+	//plus the pellets and agents
+	private void createWallLayer() {
+		wallLayer = new BufferedImage(windowWidth, windowHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2 = wallLayer.createGraphics();
+
+		g2.setColor(Color.BLACK);
+		g2.fillRect(0, 0, windowWidth, windowHeight);
+
+		g2.setColor(Color.BLUE);
+		g2.setStroke(wallStroke);
+		g2.draw(new Rectangle2D.Float(gridOffset, gridOffset, gridSize * numCols, gridSize * numRows));
+		Line2D.Float line = new Line2D.Float();
+		for (int i = 0; i < numRows; i++) {
+			for (int j = 0; j < numCols; j++) {
+				int xPos = j * gridSize + gridOffset;
+				int yPos = i * gridSize + gridOffset;
+				if (arrMaze[i][j] == 1 || arrMaze[i][j] == 3) {
+					line.setLine(xPos, yPos, xPos + gridSize, yPos);
+					g2.draw(line);
+				}
+				if (arrMaze[i][j] == 2 || arrMaze[i][j] == 3) {
+					line.setLine(xPos + gridSize, yPos, xPos + gridSize, yPos + gridSize);
+					g2.draw(line);
+				}
+			}
+		}
+		g2.dispose();
+	}
+
+	//a maze named on the command line has to read, otherwise the user is asked until one does
+	private void loadFile(String filename) {
+		boolean askUser = (filename == null);
 		do {
-			filename = JOptionPane.showInputDialog("Enter maze filename: ");
+			if (askUser) {
+				filename = JOptionPane.showInputDialog("Enter maze filename: ");
 
-			try {
-				String[] comp;
-				reader = new BufferedReader(new FileReader(filename));
+				//cancelled
+				if (filename == null) System.exit(0);
+			}
 
-				//create the maze array
-				comp = reader.readLine().split("\\s+");
-				numRows = Integer.parseInt(comp[0]);
-				numCols = Integer.parseInt(comp[1]);
+			try {
+				MazeFile maze = MazeFile.load(filename);
+				numRows = maze.numRows;
+				numCols = maze.numCols;
+				arrMaze = maze.arrMaze;
+				arrPellets = maze.arrPellets;
+				numPellets = arrPellets.length;
 
 				int scaleFactor = Math.max(numRows, numCols);
 				int limitingFactor = Math.min(windowHeight, windowWidth);
-				gridSize = (limitingFactor - 2 * gridOffset) / scaleFactor;
+				gridSize = Math.max((limitingFactor - 2 * gridOffset) / scaleFactor, 1);	//big mazes run off the window
 				pelletRadius = gridSize / 5;
 				hupmanRadius = gridSize / 3;
 
-				arrMaze = new int[numRows][numCols];
-				//wall types at grid positions
-				for (int i = 0; i < numRows; i++) {
-					comp = reader.readLine().split("\\s+");
-					for (int j = 0; j < numCols; j++) {
-						arrMaze[i][j] = Integer.parseInt(comp[j]);
-					}
-				}
-
-				//remove empty lines
-				while ((comp = reader.readLine().split("\\s+")).length == 0);
-
-				numPellets = Integer.parseInt(comp[0]);
-				arrPellets = new int[numPellets][2];
-				for (int i = 0; i < numPellets; i++) {
-					comp = reader.readLine().split("\\s+");
-					arrPellets[i][0] = Integer.parseInt(comp[1]);	//col as x
-					arrPellets[i][1] = Integer.parseInt(comp[0]);	//row as y
-				}
-
 				bFileRead = true;
-			} catch (IOException ex) {
-				System.out.println("This file doesn't exist.  Choose a different file.");
+			} catch (FileNotFoundException ex) {
+				System.out.println(askUser ? "This file doesn't exist.  Choose a different file." : "This file doesn't exist.");
 				//ex.printStackTrace();
-			} finally {
-				try {
-					if (reader != null) reader.close();
-				} catch (IOException ex) {
-					//ex.printStackTrace();
-				}
+			} catch (IOException ex) {
+				System.out.println(filename + ", " + ex.getMessage() + (askUser ? ".  Choose a different file." : "."));
 			}
+
+			if (!bFileRead && !askUser) System.exit(1);
 		}
 		while (!bFileRead);
 	}
 
 	private void createGraph() {
-		addNode(new Node(new Point(0, 0)), 0, 0);
-	}
-
-	private void addNode(Node thisNode, int currX, int currY) {
-		mapNodes.put(currX + "-" + currY, thisNode);
-		int wallType = arrMaze[currY][currX];
-
-		//ADD CHILDREN
-		//left
-		if (currX > 0 && arrMaze[currY][currX-1] != 2 && arrMaze[currY][currX-1] != 3) {
-			String sKey = (currX-1) + "-" + currY;
-			Node tempNode = mapNodes.get(sKey);
-			if (tempNode == null) {
-				tempNode = new Node(new Point(currX - 1, currY));
-				addNode(tempNode, currX - 1, currY);
-			}
-
-			thisNode.addNode(tempNode);
+		wallLayer = null;
+		graph = new MazeGraph(arrMaze, numRows, numCols);
+		graph.setPellets(arrPellets);
+		numPellets = graph.getNumPellets();
+		DistanceTable distTable = DistanceTable.fits(graph) ? new DistanceTable(graph) : null;
+		JunctionGraph junctions = macroMoves ? new JunctionGraph(graph) : null;
+		TranspositionTable table = new TranspositionTable(tableSizeMB);
+		evaluator = new Evaluator(graph, distTable, junctions);
+		searcher = new Searcher(graph, evaluator);
+		searcher.setTranspositionTable(table);
+		searcher.setMetrics(metrics);
+		if (macroMoves) searcher.setMacroMoves(junctions);
+		if (searchMode == SEARCH_PARALLEL) {
+			parallelSearch = new ParallelSearch(graph, distTable, junctions, table, searchThreads);
+			parallelSearch.setMetrics(metrics);
+			if (macroMoves) parallelSearch.setMacroMoves(junctions);
 		}
-		//right
-		if (currX < numCols - 1 && wallType != 2 && wallType != 3) {
-			String sKey = (currX+1) + "-" + currY;
-			Node tempNode = mapNodes.get(sKey);
-			if (tempNode == null) {
-				tempNode = new Node(new Point(currX + 1, currY));
-				addNode(tempNode, currX + 1, currY);
-			}
-
-			thisNode.addNode(tempNode);
-		}
-		//up
-		if (currY > 0 && wallType != 1 && wallType != 3) {
-			String sKey = currX + "-" + (currY-1);
-			Node tempNode = mapNodes.get(sKey);
-			if (tempNode == null) {
-				tempNode = new Node(new Point(currX, currY - 1));
-				addNode(tempNode, currX, currY - 1);
-			}
-
-			thisNode.addNode(tempNode);
-		}
-		//down
-		if (currY < numRows - 1 && arrMaze[currY+1][currX] != 1 && arrMaze[currY+1][currX] != 3) {
-			String sKey = currX + "-" + (currY+1);
-			Node tempNode = mapNodes.get(sKey);
-			if (tempNode == null) {
-				tempNode = new Node(new Point(currX, currY + 1));
-				addNode(tempNode, currX, currY + 1);
-			}
+		monteCarlo = new MonteCarloSearch(graph, distTable, treeNodes);
+		monteCarlo.setMetrics(metrics);
+		ghostController = new GhostController(graph, distTable);
+	}
 
-			thisNode.addNode(tempNode);
+	private static int getGhostPolicy() {
+		String name = System.getProperty("hupman.ghosts", GhostController.NAMES[GhostController.SEARCH]);
+		int policy = GhostController.parse(name);
+		if (policy < 0) {
+			System.out.println("Unknown ghost policy " + name + ", the ghosts will search.");
+			policy = GhostController.SEARCH;
 		}
+		return policy;
 	}
 
 	private void resetPelletNodes() {
 		currentState.clearPellets();
 		for (int i = 0; i<numPellets; i++) {
-			int x = arrPellets[i][0];
-			int y = arrPellets[i][1];
-			currentState.addPellet(new Point(x, y));
-		}
-	}
-
-	private void resetVisitedNodes() {
-		for (Map.Entry<String, Node> entry : mapNodes.entrySet())
-		{
-			entry.getValue().setVisited(false);
-			entry.getValue().setParent(null);
-		}
-	}
-
-	//get reverse path from end node to initial node
-	private ArrayList<Node> reversePath(Node endNode, Node initNode) {
-		ArrayList<Node> path = new ArrayList<>();
-
-		Node tempNode = endNode;
-		do {
-			path.add(tempNode);
-			tempNode = tempNode.getParent();
-		}
-		while (tempNode != null && tempNode != initNode);
-
-		Collections.reverse(path);
-		return path;
-	}
-
-	//finds path to target node
-	private ArrayList<Node> getPath(Node start, Node target) {
-		ArrayList<Node> path = new ArrayList<>();
-		ArrayList<Node> openList = new ArrayList<>();
-		openList.add(start); //add starting node to open list
-
-		Node thisNode = null;
-
-		boolean done = false;
-		while (!done) {
-			thisNode = null;
-
-			//get node with lowest f cost from openList
-			int lowestF = -1;
-			for (int i = 0; i < openList.size(); i++) {
-				int newF = openList.get(i).getFCost();
-				if (lowestF < 0 || newF < lowestF) {
-					lowestF = newF;
-					thisNode = openList.get(i);
-				}
-			}
-
-			thisNode.setVisited(true);
-			openList.remove(thisNode); //delete current node from open list
-
-			//found goal
-			if (thisNode == target) {
-				//get path to node + ending node
-				done = true;
-				path = reversePath(thisNode, start);
-			}
-
-			//continue if node wasn't the goal node
-			if (!done) {
-				//for all adjacent nodes:
-				ArrayList<Node> arrAdj = thisNode.getAdjacentNodes();
-				for (int i = 0; i < arrAdj.size(); i++) {
-					Node nodeAdj = arrAdj.get(i);
-
-					//if not in the openList, add it
-					if (!openList.contains(nodeAdj) && !nodeAdj.getVisited()) {
-						Point adjPos = nodeAdj.getPos();
-						Point targetPos = target.getPos();
-						int hCost = Math.abs(adjPos.x - targetPos.x) + Math.abs(adjPos.y - targetPos.y);
-
-						nodeAdj.setParent(thisNode);
-						nodeAdj.setHCost(hCost);
-						nodeAdj.setGCost(thisNode.getGCost() + 1);
-						openList.add(nodeAdj);
-
-
-					}
-					//else if costs are cheaper, keep it open and lower g cost
-					else {
-						if (nodeAdj.getGCost() > thisNode.getGCost() + 1) {
-							nodeAdj.setVisited(false);
-							nodeAdj.setParent(thisNode);
-							nodeAdj.setGCost(thisNode.getGCost() + 1);
-							openList.add(nodeAdj);
-						}
-					}
-				}
-
-				//no path exists
-				if (openList.isEmpty()) {
-					done = true;
-					path = null;
-				}
-			}
-		}
-
-		//reset visited nodes
-		resetVisitedNodes();
-
-		return path;
-	}
-
-	private double getWeightOne(State testState, int weightType) {
-		double weight = 0;
-
-		Point locHupman = testState.getHupmanLocation();
-
-		if (weightType == WT_HAS_PELLET) {
-			ArrayList<Point> locPellets = testState.getPelletLocations();
-			for (int j = 0; j < locPellets.size(); j++) {
-				if (locPellets.get(j).equals(locHupman)) {
-					weight += 100.0 * (1.0 / locPellets.size());
-					testState.setUneatenSteps(0);
-					testState.removePellet(locPellets.get(j));
-				}
-			}
-		} else if (weightType == WT_HAS_GHOST) {
-			ArrayList<Point> locGhosts = testState.getGhostLocations();
-			for (int j = 0; j < locGhosts.size(); j++) {
-				if (locGhosts.get(j).equals(locHupman)) {
-					weight -= 500.0 / testState.getSteps();
-					testState.setDead(true);
-				}
-			}
-		} else if (weightType == WT_DIST_PELLETS) {
-			Node startNode = mapNodes.get(locHupman.x + "-" + locHupman.y);
-			ArrayList<Point> locPellets = testState.getPelletLocations();
-			for (int i = 0; i < locPellets.size(); i++) {
-				Point locPellet = locPellets.get(i);
-				Node endNode = mapNodes.get(locPellet.x + "-" + locPellet.y);
-				ArrayList<Node> path = getPath(startNode, endNode);
-
-				weight += 5.0 / Math.pow(path.size(), 2) * Math.pow(testState.getSteps(), 1.4)
-						* (1.0 / locPellets.size());
-			}
-		} else if (weightType == WT_DIST_GHOSTS) {
-			Node startNode = mapNodes.get(locHupman.x + "-" + locHupman.y);
-			ArrayList<Point> locGhosts = testState.getGhostLocations();
-			for (int i = 0; i < locGhosts.size(); i++) {
-				Point locGhost = locGhosts.get(i);
-				Node endNode = mapNodes.get(locGhost.x + "-" + locGhost.y);
-				ArrayList<Node> path = getPath(startNode, endNode);
-				weight -= 50.0 / Math.pow(path.size(), 1.4);
-			}
-		} else if (weightType == WT_TOTAL_STEPS) {
-			weight -= (testState.getPrevTurn() == 0) ? Math.pow(testState.getSteps(), 1.5) : 0;
-		}
-
-		return weight;
-	}
-
-	private double getWeightTwo(State testState, int weightType) {
-		double weight = 0;
-
-		Point locHupman = testState.getHupmanLocation();
-
-		if (weightType == WT_HAS_PELLET) {
-			ArrayList<Point> locPellets = testState.getPelletLocations();
-			for (int j = 0; j < locPellets.size(); j++) {
-				if (locPellets.get(j).equals(locHupman)) {
-					weight += 2000.0 / locPellets.size() * Math.sqrt(testState.getUneatenSteps());
-					testState.setUneatenSteps(0);
-					testState.removePellet(locPellets.get(j));
-				}
-			}
-		} else if (weightType == WT_HAS_GHOST) {
-			ArrayList<Point> locGhosts = testState.getGhostLocations();
-			for (int j = 0; j < locGhosts.size(); j++) {
-				if (locGhosts.get(j).equals(locHupman)) {
-					weight -= 1000.0 * (testState.getPrevTurn() == 0 ? Math.floor(1.0 / Math.max(testState.getUneatenSteps()
-							* 2 * testState.getSteps(), 1)) : 1.0);
-					testState.setDead(true);
-				}
-			}
-		} else if (weightType == WT_DIST_PELLETS) {
-			Node startNode = mapNodes.get(locHupman.x + "-" + locHupman.y);
-			ArrayList<Point> locPellets = testState.getPelletLocations();
-			for (int i = 0; i < locPellets.size(); i++) {
-				Point locPellet = locPellets.get(i);
-				Node endNode = mapNodes.get(locPellet.x + "-" + locPellet.y);
-				ArrayList<Node> path = getPath(startNode, endNode);
-
-				weight += 2000.0 / locPellets.size() / Math.pow(path.size(), 2) * Math.sqrt(testState.getUneatenSteps());
-			}
-		} else if (weightType == WT_DIST_GHOSTS) {
-			Node startNode = mapNodes.get(locHupman.x + "-" + locHupman.y);
-			ArrayList<Point> locGhosts = testState.getGhostLocations();
-			for (int i = 0; i < locGhosts.size(); i++) {
-				Point locGhost = locGhosts.get(i);
-				Node endNode = mapNodes.get(locGhost.x + "-" + locGhost.y);
-				ArrayList<Node> path = getPath(startNode, endNode);
-				double power = testState.getUneatenSteps() * 2;
-				weight -= 250.0 * (testState.getPrevTurn() == 0 ? Math.floor(1.0 / Math.pow(path.size(), Math.sqrt(power)))
-						: 1.0 / Math.pow(path.size(), 1.4));
-			}
-		} else if (weightType == WT_TOTAL_STEPS) {
-			//weight -= (testState.getPrevTurn() == 0) ? Math.pow(testState.getSteps(), 1.5) : 0;
+			currentState.addPellet(i);
 		}
-
-		return weight;
 	}
 
-	private State min(ArrayList<State> arrStates, double minProb) {
+	private State min(ArrayList<State> arrStates, double minProb, SplittableRandom random) {
 		int minIndex = 0;
 		for (int i = 1; i < arrStates.size(); i++) {
 			if (arrStates.get(i).getWeight() < arrStates.get(minIndex).getWeight()) {
@@ -723,7 +487,7 @@ public class Hupman extends JPanel{
 		}
 
 		//randomize the minIndex
-		double rand = Math.random();
+		double rand = random.nextDouble();
 		if (rand >= minProb) {
 			double width = (1.0 - minProb) / (arrStates.size() - 1);
 			for (int i = 0; i < arrStates.size() - 1; i++) {
@@ -755,47 +519,39 @@ public class Hupman extends JPanel{
 		return maxState;
 	}
 
-	private State minimax(State testState, int depth, boolean doMax, double minProb, int evalFunction) {
+	private State minimax(State testState, int depth, boolean doMax, double minProb, int evalFunction,
+						  SplittableRandom random) {
 		int turn = testState.getTurn();
 		State weightState = null;
 
-		Point testPos = null;
+		int testCell;
 		if (doMax) {
-			testPos = testState.getHupmanLocation();
+			testCell = testState.getHupmanCell();
 		} else {
-			testPos = testState.getGhostLocations().get(turn - 1);
+			testCell = testState.getGhostCell(turn - 1);
 		}
-		String key = testPos.x + "-" + testPos.y;
-		Node testNode = mapNodes.get(key);
 
 		ArrayList<State> subStates = new ArrayList<>();
 
 		if (depth > 0) {
-			for (int i = 0; i < testNode.getAdjacentNodes().size(); i++) {
-				Node adjNode = testNode.getAdjacentNodes().get(i);
+			for (int i = 0; i < graph.getDegree(testCell); i++) {
+				int adjCell = graph.getNeighbour(testCell, i);
 				State adjState = new State(testState);
 
 				if (turn == 0) {
-					adjState.setHupmanLocation(adjNode.getPos());
+					adjState.setHupmanCell(adjCell);
 					adjState.addStep();
 					adjState.setUneatenSteps(adjState.getUneatenSteps() + 1);
 				} else {
-					adjState.setGhostLocation(adjNode.getPos(), turn - 1);
+					adjState.setGhostCell(turn - 1, adjCell);
 				}
 
 				//make the next state another player's turn & get weights of all their subnodes
 				adjState.nextTurn();
-				subStates.add(minimax(adjState, depth - 1, adjState.getTurn() == 0, minProb, evalFunction));
+				subStates.add(minimax(adjState, depth - 1, adjState.getTurn() == 0, minProb, evalFunction, random));
 
 				//update weights for this node
-				double weight = 0;
-				if (evalFunction == 1) {
-					weight += getWeightOne(adjState, WT_HAS_PELLET);	//if state has pellet
-					weight += getWeightOne(adjState, WT_HAS_GHOST);		//if state has ghost
-				} else if (evalFunction == 2) {
-					weight += getWeightTwo(adjState, WT_HAS_PELLET);	//if state has pellet
-					weight += getWeightTwo(adjState, WT_HAS_GHOST);		//if state has ghost
-				}
+				double weight = evaluator.getMoveWeight(adjState, evalFunction);
 
 				adjState.setWeight(adjState.getWeight() + weight);
 			}
@@ -804,35 +560,22 @@ public class Hupman extends JPanel{
 			else {
 				//hupman always thinks the ghost will choose the best
 				double hupmanProb = (currentState.getTurn() == 0) ? 1.0 : minProb;
-				weightState = min(subStates, hupmanProb);
+				weightState = min(subStates, hupmanProb, random);
 			}
 		}
 		else {
 			weightState = new State(testState);
 
 			if (turn == 0) {
-				weightState.setHupmanLocation(testNode.getPos());
+				weightState.setHupmanCell(testCell);
 				weightState.addStep();
 				weightState.setUneatenSteps(weightState.getUneatenSteps() + 1);
 			} else {
-				weightState.setGhostLocation(testNode.getPos(), turn - 1);
+				weightState.setGhostCell(turn - 1, testCell);
 			}
 
 			//get weights of final node
-			float weight = 0;
-			if (evalFunction == 1) {
-				weight += getWeightOne(weightState, WT_HAS_PELLET);		//if state has pellet
-				weight += getWeightOne(weightState, WT_HAS_GHOST);		//distance to other pellets2
-				weight += getWeightOne(weightState, WT_DIST_PELLETS);	//if state has ghost
-				weight += getWeightOne(weightState, WT_DIST_GHOSTS);	//distance to other ghosts
-				weight += getWeightOne(weightState, WT_TOTAL_STEPS);	//distance to other ghosts
-			} else if (evalFunction == 2) {
-				weight += getWeightTwo(weightState, WT_HAS_PELLET);		//if state has pellet
-				weight += getWeightTwo(weightState, WT_HAS_GHOST);		//distance to other pellets2
-				weight += getWeightTwo(weightState, WT_DIST_PELLETS);	//if state has ghost
-				weight += getWeightTwo(weightState, WT_DIST_GHOSTS);	//distance to other ghosts
-				weight += getWeightTwo(weightState, WT_TOTAL_STEPS);	//distance to other ghosts
-			}
+			float weight = evaluator.getLeafWeight(weightState, evalFunction);
 
 			weightState.setWeight(weight);
 		}
@@ -848,23 +591,237 @@ public class Hupman extends JPanel{
 	//SUCCESSOR FUNCTION
 	//this function takes the current state and applies minimax to it, which returns the state at which
 	//hupman has the "best" chance for a better score.
-	//returns null if hupman is dead
-	//"func" is the evaluation function to use (0 or 1)
+	//the returned state is dead if the move killed hupman
+	//"func" is the evaluation function to use (0 or 1), or 2 for the Monte Carlo tree search
 	//"ghostChance" is the chance of the ghosts using the "best" move
-	private State takeTurn(State thisState, int depth, int func, double ghostChance) {
+	//"random" makes the ghosts' choices, the same seed plays the same game at a fixed depth
+	//"ponderRandom" is used while pondering, so pondering doesn't change the moves "random" makes
+	private State takeTurn(State thisState, int func, double ghostChance, SplittableRandom random,
+						   SplittableRandom ponderRandom) {
 		//whether to maximize or minimize the
 		boolean doMax = (currentState.getTurn() == 0);
 
 		//get next hupman/ghost states
-		State testState = new State(currentState);
-		testState = minimax(currentState, depth, doMax, ghostChance, func + 1);
-
-		//return null is the game has ended (dead or eaten all pellets)
-		if (testState.getDead()) {
-			return null;
+		long startTime = System.nanoTime();
+		State testState;
+		boolean cheapMove = (!doMax && ghostPolicy != GhostController.SEARCH);
+		if (cheapMove) {
+			testState = ghostController.move(currentState, ghostPolicy, ghostChance, random);
+		} else if (func == FUNC_MONTE_CARLO) {
+			testState = monteCarlo.search(currentState, moveTimeMs, 0, ghostChance, random);
+		} else if (searchMode == SEARCH_PARALLEL) {
+			testState = parallelSearch.searchTimed(currentState, moveTimeMs, maxDepth, ghostChance, func + 1, random);
+		} else if (searchMode == SEARCH_IN_PLACE) {
+			testState = searcher.searchTimed(currentState, moveTimeMs, maxDepth, ghostChance, func + 1, random);
 		} else {
-			return testState;
+			evaluator.startTurn(currentState);
+			testState = minimax(currentState, copyDepth, doMax, ghostChance, func + 1, random);
+		}
+		lastTurnNanos = System.nanoTime() - startTime;
+		lastTurnNodes = cheapMove ? 0 : metrics.getLastMoveNodes();	//ghost policies aren't searches
+
+		//nothing to ponder once hupman is dead
+		if (!testState.getDead()) ponder(testState, func, ghostChance, ponderRandom);
+		return testState;
+	}
+
+	//searches ahead until the move is due, so the next search finds the tree or transposition table filled in
+	//the Monte Carlo tree is grown from the position after the move, moveRoot keeps it through the ghosts' moves
+	//the searcher only stores its results in the transposition table at hupman's turns (the ghosts' turns are
+	//searched with plain minimax), so it searches hupman's next turn instead, with the ghosts still to move
+	//making the move they are expected to: their policy's best move, or a step towards hupman when they are searched
+	//pondering runs on the game thread in the time it would otherwise sleep, with the single-threaded searcher
+	//even in parallel mode, so it never takes more than one core; nothing is pondered when paused or in turbo mode
+	private void ponder(State nextState, int func, double ghostChance, SplittableRandom ponderRandom) {
+		long ponderTimeMs = scheduler.getTimeToMove() / 1000000;
+		if (ponderTimeMs <= 0 || searchMode == SEARCH_COPY || nextState.getPelletsLeft() == 0) return;
+
+		if (func == FUNC_MONTE_CARLO) {
+			monteCarlo.ponder(nextState, ponderTimeMs, ghostChance, ponderRandom);
+			return;
+		}
+
+		State ponderState = nextState;
+		int policy = (ghostPolicy == GhostController.SEARCH) ? GhostController.CHASE : ghostPolicy;
+		while (ponderState.getTurn() != 0 && !ponderState.getDead()) {
+			ponderState = ghostController.move(ponderState, policy, 1.0, ponderRandom);
+		}
+		if (ponderState.getDead()) return;
+
+		//what is left of the wait after the ghosts' moves
+		ponderTimeMs = scheduler.getTimeToMove() / 1000000;
+		if (ponderTimeMs > 0) searcher.ponder(ponderState, ponderTimeMs, maxDepth, ghostChance, func + 1, ponderRandom);
+	}
+
+	TurnScheduler getScheduler() {
+		return scheduler;
+	}
+
+	//loads a recording of a game on this maze and plays it from the start
+	private synchronized void openReplay(String filename) {
+		if (gameRunning) {
+			System.out.println("Wait for the game to end before watching a replay.");
+			return;
+		}
+		try {
+			replay = GameReplay.read(filename, graph);
+		} catch (IOException ex) {
+			System.out.println("Can't read the replay: " + ex.getMessage());
+			return;
+		}
+		System.out.println("Replay:\n\tMoves: " + replay.getLength() + "\n\tFunction: " + replay.getEvalFunction()
+				+ "\n\tSeed: " + replay.getSeed() + "\n");
+		showReplay(0);
+		notifyAll();
+
+		if (!replayThreadRunning) {
+			replayThreadRunning = true;
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					scheduler.startGame();
+					while (scheduler.waitForMove(getReplayAgents()) && nextReplayMove()) {
+						//nextReplayMove shows the move
+					}
+				}
+			});
+			t.start();
+		}
+	}
+
+	private synchronized void saveRecording(String filename) {
+		if (recorder == null || gameRunning) {
+			System.out.println("There is no finished game to save.");
+			return;
+		}
+		try {
+			recorder.save(filename);
+		} catch (IOException ex) {
+			System.out.println("Can't save the replay: " + ex.getMessage());
+		}
+	}
+
+	private synchronized int getReplayAgents() {
+		return (replayState != null) ? replayState.getNumGhosts() + 1 : 1;
+	}
+
+	//moves the replay on one event, or waits at the end for a seek
+	//returns false once replay mode has ended
+	private synchronized boolean nextReplayMove() {
+		if (replay != null && replayPosition >= replay.getLength()) {
+			try {
+				wait();
+			} catch (InterruptedException ex) {
+				replay = null;
+			}
+
+			//let the scheduler pace the move after a seek
+			if (replay != null) return true;
+		}
+		if (replay == null) {
+			replayThreadRunning = false;
+			return false;
 		}
+
+		replay.apply(replayState, replayPosition++);
+		if (scheduler.shouldDraw(replayPosition) || replayPosition == replay.getLength()) {
+			publish(replayState);
+			updateReplayControls();
+		}
+		return true;
+	}
+
+	//jumps to the state after the first "position" events
+	private synchronized void seekReplay(int position) {
+		if (replay == null || position == replayPosition) return;
+		showReplay(position);
+		notifyAll();
+	}
+
+	//jumps to just after the move that took longest to search
+	private synchronized void seekSlowestMove() {
+		if (replay == null) return;
+		int slowest = replay.getSlowestMove();
+		if (slowest >= 0) seekReplay(slowest + 1);
+	}
+
+	private void showReplay(int position) {
+		replayPosition = Math.max(0, Math.min(position, replay.getLength()));
+		replayState = replay.getState(replayPosition);
+		publish(replayState);
+		updateReplayControls();
+	}
+
+	private synchronized void stopReplay() {
+		if (replay == null) return;
+		replay = null;
+		replayState = null;
+		notifyAll();
+		updateReplayControls();
+	}
+
+	//moves the slider and shows the last event, on the EDT
+	private void updateReplayControls() {
+		int length = (replay != null) ? replay.getLength() : 0;
+		int position = replayPosition;
+		String text = (replay == null) ? " " : (position == 0) ? "Start of the game" : replay.describe(position - 1);
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				updatingSlider = true;
+				replaySlider.setMaximum(length);
+				replaySlider.setValue(position);
+				updatingSlider = false;
+				replayInfo.setText(text);
+			}
+		});
+	}
+
+	//open, save and seek recorded games
+	JPanel createReplayControls() {
+		JButton btnOpen = new JButton("Open Replay...");
+		btnOpen.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				JFileChooser chooser = new JFileChooser(".");
+				if (chooser.showOpenDialog(Hupman.this) == JFileChooser.APPROVE_OPTION) {
+					openReplay(chooser.getSelectedFile().getPath());
+				}
+			}
+		});
+		JButton btnSave = new JButton("Save Replay...");
+		btnSave.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				JFileChooser chooser = new JFileChooser(".");
+				if (chooser.showSaveDialog(Hupman.this) == JFileChooser.APPROVE_OPTION) {
+					saveRecording(chooser.getSelectedFile().getPath());
+				}
+			}
+		});
+		JButton btnSlowest = new JButton("Slowest Move");
+		btnSlowest.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				seekSlowestMove();
+			}
+		});
+		replaySlider.addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				if (!updatingSlider) seekReplay(replaySlider.getValue());
+			}
+		});
+
+		JPanel pnlButtons = new JPanel();
+		pnlButtons.add(btnOpen);
+		pnlButtons.add(btnSave);
+		pnlButtons.add(btnSlowest);
+		JPanel pnlReplay = new JPanel(new BorderLayout());
+		pnlReplay.add(pnlButtons, BorderLayout.WEST);
+		pnlReplay.add(replaySlider, BorderLayout.CENTER);
+		pnlReplay.add(replayInfo, BorderLayout.SOUTH);
+		return pnlReplay;
 	}
 
 	public static void main(String[] args) {
@@ -873,7 +830,7 @@ public class Hupman extends JPanel{
 		frame.setSize(200, 200);
 		frame.setVisible(true);
 
-		Hupman hup = new Hupman();
+		Hupman hup = new Hupman((args.length > 0) ? args[0] : null);
 		frame.getContentPane().add(hup);
 
 		JButton btnStart = new JButton("Start");
@@ -883,8 +840,58 @@ public class Hupman extends JPanel{
 				hup.start();
 			}
 		});
-		frame.add(btnStart, BorderLayout.NORTH);
-		btnStart.setVisible(true);
+
+		//pacing controls
+		TurnScheduler scheduler = hup.getScheduler();
+		JButton btnPause = new JButton("Pause");
+		btnPause.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				scheduler.setPaused(!scheduler.isPaused());
+				btnPause.setText(scheduler.isPaused() ? "Resume" : "Pause");
+			}
+		});
+		JButton btnStep = new JButton("Step");
+		btnStep.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				scheduler.step();
+				btnPause.setText("Resume");
+			}
+		});
+		JSpinner spnSpeed = new JSpinner(new SpinnerNumberModel(scheduler.getTurnsPerSecond(), 1, 1000, 1));
+		spnSpeed.addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				scheduler.setTurnsPerSecond((Integer) spnSpeed.getValue());
+			}
+		});
+		JCheckBox chkTurbo = new JCheckBox("Turbo");
+		chkTurbo.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				scheduler.setTurbo(chkTurbo.isSelected());
+			}
+		});
+		JSpinner spnFrameSkip = new JSpinner(new SpinnerNumberModel(scheduler.getFrameSkip(), 1, 10000, 1));
+		spnFrameSkip.addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				scheduler.setFrameSkip((Integer) spnFrameSkip.getValue());
+			}
+		});
+
+		JPanel pnlControls = new JPanel();
+		pnlControls.add(btnStart);
+		pnlControls.add(btnPause);
+		pnlControls.add(btnStep);
+		pnlControls.add(new JLabel("Turns/s:"));
+		pnlControls.add(spnSpeed);
+		pnlControls.add(chkTurbo);
+		pnlControls.add(new JLabel("Draw every:"));
+		pnlControls.add(spnFrameSkip);
+		frame.add(pnlControls, BorderLayout.NORTH);
+		frame.add(hup.createReplayControls(), BorderLayout.SOUTH);
 
 		frame.pack();
 	}
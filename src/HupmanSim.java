@@ -0,0 +1,308 @@
+/*
+ * Matthew Clark
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//headless batch runner: plays many games per maze on all cores without Swing or sleeps
+//and prints the win rate, pellets eaten, steps and games per second
+//usage: java HupmanSim [options] maze.txt [maze2.txt ...]
+//mazes can also be MazeGenerator specs, e.g. gen:100x100, to see how the search scales with the maze size
+public class HupmanSim {
+	private int hupmanX = 0, hupmanY = 0;
+	private ArrayList<int[]> ghostStarts = new ArrayList<>();
+	private int func = 1;			//evaluation function, or FUNC_MONTE_CARLO
+	private int playouts = 0;		//per-move playout budget of the Monte Carlo search, 0 uses the time or its default
+	private int depth = 8;
+	private long moveTimeMs = 0;		//per-move time budget, 0 searches to a fixed depth
+	private double ghostChance = 0.7;
+	private int ghostPolicy = GhostController.SEARCH;
+	private int numGames = 100;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private int parallelThreads = 0;	//threads of each game's ParallelSearch, 0 searches on the game's own thread
+	private int maxTurns = 2000;
+	private int tableSizeMB = 4;
+	private long seed = new SplittableRandom().nextLong();	//game i plays with the i-th seed drawn from this
+	private ArrayList<String> mazeFiles = new ArrayList<>();
+	private static final int FUNC_MONTE_CARLO = 3;
+	private static final int TREE_NODES = 1 << 18;
+	private boolean csv = false;	//one line per maze instead of a block
+	private boolean macroMoves = false;	//hupman commits to corridors in the search, paths use the junction graph
+	private SearchMetrics metrics = SearchMetrics.register("SimulationMetrics");	//reset every maze
+
+	//outcome of one game
+	private static class Result {
+		boolean won;
+		boolean timedOut;
+		int pelletsEaten;
+		int steps;
+	}
+
+	private static void printUsage() {
+		System.out.println("usage: java HupmanSim [options] maze.txt|" + MazeGenerator.SPEC_PREFIX + "ROWSxCOLS[,...] [...]");
+		System.out.println("\t--hupman x,y\t\thupman's starting cell, negative counts from the far side (default 0,0)");
+		System.out.println("\t--ghost x,y\t\tadd a ghost starting at a cell (repeatable, -1,-1 is the bottom right)");
+		System.out.println("\t--func 1|2|3\t\tevaluation function, or 3 for Monte Carlo tree search (default 1)");
+		System.out.println("\t--playouts n\t\tplayouts per move of the Monte Carlo search (default 2000 without --time)");
+		System.out.println("\t--depth n\t\tsearch depth in plies (default 8)");
+		System.out.println("\t--time ms\t\tper-move time budget instead of a fixed depth");
+		System.out.println("\t--ghost-chance p\tchance of a ghost playing its best move (default 0.7)");
+		System.out.println("\t--ghosts policy\t\tsearch, chase, scatter or random (default search)");
+		System.out.println("\t--games n\t\tgames per maze (default 100)");
+		System.out.println("\t--threads n\t\tgames played at once (default: all cores)");
+		System.out.println("\t--parallel n\t\tsearch each move's root moves on n threads (needs --time, a long\n"
+				+ "\t\t\t\ttime with --depth searches to a fixed depth), e.g. --threads 1 --parallel 4");
+		System.out.println("\t--max-turns n\t\tend a game after n agent turns (default 2000)");
+		System.out.println("\t--table-mb n\t\ttransposition table size per thread (default 4)");
+		System.out.println("\t--seed n\t\tseed for the ghosts' random moves (default: random)");
+		System.out.println("\t--macro\t\t\thupman commits to corridors in the search (corridor plies still count against the depth)\n"
+				+ "\t\t\t\tand mazes too big for a distance table take paths from the junction graph instead of A*");
+		System.out.println("\t--csv\t\t\tprint one comma separated line per maze");
+	}
+
+	private static int[] parseCell(String arg) {
+		String[] comp = arg.split(",");
+		if (comp.length != 2) throw new IllegalArgumentException("expected x,y but got " + arg);
+		return new int[] {Integer.parseInt(comp[0].trim()), Integer.parseInt(comp[1].trim())};
+	}
+
+	private void parseArgs(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (!arg.startsWith("--")) {
+				mazeFiles.add(arg);
+				continue;
+			}
+			if (arg.equals("--csv")) {
+				csv = true;
+				continue;
+			}
+			if (arg.equals("--macro")) {
+				macroMoves = true;
+				continue;
+			}
+			if (i + 1 >= args.length) throw new IllegalArgumentException(arg + " needs a value");
+
+			String value = args[++i];
+			if (arg.equals("--hupman")) {
+				int[] cell = parseCell(value);
+				hupmanX = cell[0];
+				hupmanY = cell[1];
+			} else if (arg.equals("--ghost")) {
+				ghostStarts.add(parseCell(value));
+			} else if (arg.equals("--func")) {
+				func = Integer.parseInt(value);
+				if (func < 1 || func > FUNC_MONTE_CARLO) throw new IllegalArgumentException("--func must be 1, 2 or 3");
+			} else if (arg.equals("--playouts")) {
+				playouts = Integer.parseInt(value);
+			} else if (arg.equals("--depth")) {
+				depth = Integer.parseInt(value);
+			} else if (arg.equals("--time")) {
+				moveTimeMs = Long.parseLong(value);
+			} else if (arg.equals("--ghost-chance")) {
+				ghostChance = Double.parseDouble(value);
+			} else if (arg.equals("--ghosts")) {
+				ghostPolicy = GhostController.parse(value);
+				if (ghostPolicy < 0) throw new IllegalArgumentException("--ghosts must be search, chase, scatter or random");
+			} else if (arg.equals("--games")) {
+				numGames = Integer.parseInt(value);
+			} else if (arg.equals("--threads")) {
+				numThreads = Math.max(Integer.parseInt(value), 1);
+			} else if (arg.equals("--parallel")) {
+				parallelThreads = Math.max(Integer.parseInt(value), 0);
+			} else if (arg.equals("--max-turns")) {
+				maxTurns = Integer.parseInt(value);
+			} else if (arg.equals("--table-mb")) {
+				tableSizeMB = Integer.parseInt(value);
+			} else if (arg.equals("--seed")) {
+				seed = Long.parseLong(value);
+			} else {
+				throw new IllegalArgumentException("unknown option " + arg);
+			}
+		}
+		if (mazeFiles.isEmpty()) throw new IllegalArgumentException("no maze files given");
+		if (parallelThreads > 0 && moveTimeMs <= 0) throw new IllegalArgumentException("--parallel needs --time");
+	}
+
+	//starting state with every pellet and the configured hupman and ghosts
+	private State createStartState(MazeGraph graph) {
+		State startState = new State();
+		startState.setHupmanCell(getStartCell(graph, hupmanX, hupmanY));
+		for (int[] ghost : ghostStarts) {
+			startState.addGhost(getStartCell(graph, ghost[0], ghost[1]));
+		}
+		for (int i = 0; i < graph.getNumPellets(); i++) {
+			startState.addPellet(i);
+		}
+		return startState;
+	}
+
+	private static int getStartCell(MazeGraph graph, int x, int y) {
+		if (x < 0) x += graph.getCols();
+		if (y < 0) y += graph.getRows();
+		if (x < 0 || x >= graph.getCols() || y < 0 || y >= graph.getRows() || !graph.contains(graph.getCell(x, y))) {
+			throw new IllegalArgumentException("cell " + x + "," + y + " is not connected to the maze");
+		}
+		return graph.getCell(x, y);
+	}
+
+	//"parallelSearch" is null unless --parallel is given
+	private Result playGame(Searcher searcher, ParallelSearch parallelSearch, MonteCarloSearch monteCarlo,
+							GhostController ghostController, State startState, long gameSeed) {
+		SplittableRandom random = new SplittableRandom(gameSeed);
+		searcher.newGame();
+		if (parallelSearch != null) parallelSearch.newGame();
+		monteCarlo.newGame();
+		State currentState = startState;
+		int turns = 0;
+		while (!currentState.getDead() && currentState.getPelletsLeft() > 0 && turns < maxTurns) {
+			if (currentState.getTurn() != 0 && ghostPolicy != GhostController.SEARCH) {
+				currentState = ghostController.move(currentState, ghostPolicy, ghostChance, random);
+			} else if (func == FUNC_MONTE_CARLO) {
+				currentState = monteCarlo.search(currentState, moveTimeMs, playouts, ghostChance, random);
+			} else if (parallelSearch != null) {
+				currentState = parallelSearch.searchTimed(currentState, moveTimeMs, depth, ghostChance, func, random);
+			} else if (moveTimeMs > 0) {
+				currentState = searcher.searchTimed(currentState, moveTimeMs, depth, ghostChance, func, random);
+			} else {
+				currentState = searcher.search(currentState, depth, ghostChance, func, random);
+			}
+			turns++;
+		}
+
+		Result result = new Result();
+		result.won = !currentState.getDead() && currentState.getPelletsLeft() == 0;
+		result.timedOut = !currentState.getDead() && !result.won;
+		result.pelletsEaten = startState.getPelletsLeft() - currentState.getPelletsLeft();
+		result.steps = currentState.getSteps();
+		return result;
+	}
+
+	private void runMaze(String filename) throws Exception {
+		MazeGraph graph = MazeFile.load(filename).createGraph();
+		DistanceTable distTable = DistanceTable.fits(graph) ? new DistanceTable(graph) : null;
+		JunctionGraph junctions = new JunctionGraph(graph);
+		State startState = createStartState(graph);
+
+		//one searcher per thread, reused for every game that thread plays on this maze
+		ThreadLocal<Searcher> searchers = new ThreadLocal<Searcher>() {
+			@Override
+			protected Searcher initialValue() {
+				Searcher searcher = new Searcher(graph, new Evaluator(graph, distTable, macroMoves ? junctions : null));
+				searcher.setTranspositionTable(new TranspositionTable(tableSizeMB));
+				searcher.setMetrics(metrics);
+				if (macroMoves) searcher.setMacroMoves(junctions);
+				return searcher;
+			}
+		};
+		ThreadLocal<ParallelSearch> parallelSearches = new ThreadLocal<ParallelSearch>() {
+			@Override
+			protected ParallelSearch initialValue() {
+				if (parallelThreads <= 0) return null;
+				ParallelSearch parallelSearch = new ParallelSearch(graph, distTable, macroMoves ? junctions : null,
+						new TranspositionTable(tableSizeMB), parallelThreads);
+				parallelSearch.setMetrics(metrics);
+				if (macroMoves) parallelSearch.setMacroMoves(junctions);
+				return parallelSearch;
+			}
+		};
+		ThreadLocal<MonteCarloSearch> monteCarlos = new ThreadLocal<MonteCarloSearch>() {
+			@Override
+			protected MonteCarloSearch initialValue() {
+				MonteCarloSearch monteCarlo = new MonteCarloSearch(graph, distTable, TREE_NODES);
+				monteCarlo.setMetrics(metrics);
+				return monteCarlo;
+			}
+		};
+		ThreadLocal<GhostController> ghostControllers = new ThreadLocal<GhostController>() {
+			@Override
+			protected GhostController initialValue() {
+				return new GhostController(graph, distTable);
+			}
+		};
+
+		metrics.reset();
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		long startTime = System.nanoTime();
+		ArrayList<Future<Result>> games = new ArrayList<>();
+		SplittableRandom seeds = new SplittableRandom(seed);
+		for (int i = 0; i < numGames; i++) {
+			long gameSeed = seeds.nextLong();
+			games.add(pool.submit(() -> playGame(searchers.get(), parallelSearches.get(), monteCarlos.get(),
+					ghostControllers.get(), startState, gameSeed)));
+		}
+
+		int wins = 0, timeouts = 0;
+		long pellets = 0, steps = 0;
+		for (Future<Result> game : games) {
+			Result result = game.get();
+			if (result.won) wins++;
+			if (result.timedOut) timeouts++;
+			pellets += result.pelletsEaten;
+			steps += result.steps;
+		}
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		pool.shutdown();
+
+		if (csv) {
+			System.out.printf("\"%s\",%d,%d,%d,%d,%d,%.1f,%.2f,%.3f,%.3f,%.0f,%d\n", filename, graph.getRows(), graph.getCols(),
+					graph.getNumPellets(), startState.getNumGhosts(), numGames, 100.0 * wins / numGames,
+					(double) pellets / numGames, metrics.getAverageMoveMillis(), metrics.getMaxMoveMillis(),
+					metrics.getNodesPerSecond(), metrics.getMaxDepth());
+			return;
+		}
+
+		System.out.println(filename + " (" + graph.getCols() + "x" + graph.getRows() + "):");
+		System.out.printf("\tGames: %d (%d won, %d died, %d hit the turn limit)\n", numGames, wins,
+				numGames - wins - timeouts, timeouts);
+		System.out.printf("\tWin rate: %.1f%%\n", 100.0 * wins / numGames);
+		System.out.printf("\tPellets: %.2f of %d\n", (double) pellets / numGames, graph.getNumPellets());
+		System.out.printf("\tSteps: %.1f\n", (double) steps / numGames);
+		int corridorPellets = 0;
+		for (int i = 0; i < junctions.getNumCorridors(); i++) {
+			corridorPellets += junctions.getCorridorPellets(i);
+		}
+		System.out.printf("\tJunctions: %d, with %d corridors holding %d pellets\n", junctions.getNumJunctions(),
+				junctions.getNumCorridors(), corridorPellets);
+		System.out.printf("\tGames/second: %.1f (%.2f s on %d threads)\n", numGames / seconds, seconds, numThreads);
+		System.out.println(metrics.summary());
+	}
+
+	public static void main(String[] args) {
+		HupmanSim sim = new HupmanSim();
+		try {
+			sim.parseArgs(args);
+		} catch (IllegalArgumentException ex) {
+			System.out.println(ex.getMessage());
+			printUsage();
+			System.exit(1);
+		}
+
+		String search = (sim.moveTimeMs > 0) ? sim.moveTimeMs + " ms per move" : "depth " + sim.depth;
+		if (sim.func == FUNC_MONTE_CARLO && sim.moveTimeMs <= 0) search = ((sim.playouts > 0) ? sim.playouts : MonteCarloSearch.DEFAULT_PLAYOUTS) + " playouts per move";
+		if (sim.csv) {
+			System.out.println("maze,rows,cols,pellets,ghosts,games,win rate,pellets eaten,average move ms,"
+					+ "slowest move ms,nodes per second,depth");
+		} else {
+			System.out.println("Function " + sim.func + ", " + search + ", ghost chance " + sim.ghostChance
+					+ ", " + sim.ghostStarts.size() + " ghosts (" + GhostController.NAMES[sim.ghostPolicy] + "), "
+					+ (sim.macroMoves ? "macro moves, " : "")
+					+ (sim.parallelThreads > 0 ? "root moves on " + sim.parallelThreads + " threads, " : "")
+					+ "seed " + sim.seed + "\n");
+		}
+		for (String filename : sim.mazeFiles) {
+			try {
+				sim.runMaze(filename);
+			} catch (IOException ex) {
+				System.out.println(filename + ": can't read the maze (" + ex.getMessage() + ")\n");
+			} catch (Exception ex) {
+				System.out.println(filename + ": " + ex.getMessage() + "\n");
+			}
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+
+//the maze graph with its corridors collapsed: junctions are the cells that don't have exactly 2 neighbours
+//(plus cell 0, so a maze that is one loop still has a junction), and each corridor of 2-neighbour cells
+//between two junctions becomes one edge weighted by its length
+//edges are stored like MazeGraph's neighbours, the edges of junction j are edgeTo[edgeStart[j] .. edgeStart[j+1]),
+//in the same order as the junction cell's neighbours
+//a cell inside a corridor knows its corridor and how far along it is, corridors are numbered once
+//and go from end A to end B; adjacent junctions are joined by an edge with no corridor
+//built once per maze and only read afterwards, so it can be shared between threads
+class JunctionGraph {
+	private MazeGraph graph;
+	private int numJunctions = 0;
+	private int[] junctionCells;
+	private int[] cellJunctions;	//junction id of a cell, or -1
+
+	//edges out of each junction
+	private int[] edgeStart;
+	private int[] edgeTo;
+	private int[] edgeLength;
+	private int maxEdgeLength = 1;
+
+	//corridors, with the pellets placed in them
+	private int numCorridors = 0;
+	private int[] corridorA, corridorB, corridorLength, corridorPellets;
+	private int[] cellCorridors;	//corridor of a cell, or -1
+	private int[] cellOffsets;		//steps from the corridor's end A
+
+	JunctionGraph(MazeGraph graph) {
+		this.graph = graph;
+		int numCells = graph.getNumCells();
+
+		cellJunctions = new int[numCells];
+		Arrays.fill(cellJunctions, -1);
+		int[] cells = new int[numCells];
+		int numEdges = 0;
+		for (int cell = 0; cell < numCells; cell++) {
+			if (!graph.contains(cell)) continue;
+			if (graph.getDegree(cell) != 2 || cell == 0) {
+				cellJunctions[cell] = numJunctions;
+				cells[numJunctions++] = cell;
+				numEdges += graph.getDegree(cell);
+			}
+		}
+		junctionCells = Arrays.copyOf(cells, numJunctions);
+
+		cellCorridors = new int[numCells];
+		Arrays.fill(cellCorridors, -1);
+		cellOffsets = new int[numCells];
+		edgeStart = new int[numJunctions + 1];
+		edgeTo = new int[numEdges];
+		edgeLength = new int[numEdges];
+
+		//every corridor has an end A, so there are at most as many as edges
+		corridorA = new int[numEdges];
+		corridorB = new int[numEdges];
+		corridorLength = new int[numEdges];
+		corridorPellets = new int[numEdges];
+
+		//walk out of every junction along each of its neighbours until the next junction
+		int edge = 0;
+		for (int j = 0; j < numJunctions; j++) {
+			edgeStart[j] = edge;
+			int start = junctionCells[j];
+			for (int i = 0; i < graph.getDegree(start); i++) {
+				int prev = start;
+				int cell = graph.getNeighbour(start, i);
+				int length = 1;
+
+				//the corridor was numbered when it was walked from its other end
+				int corridor = (cellJunctions[cell] < 0) ? cellCorridors[cell] : -1;
+				boolean isNew = (cellJunctions[cell] < 0 && corridor < 0);
+				if (isNew) {
+					corridor = numCorridors++;
+					corridorA[corridor] = j;
+				}
+
+				while (cellJunctions[cell] < 0) {
+					if (isNew) {
+						cellCorridors[cell] = corridor;
+						cellOffsets[cell] = length;
+						if (graph.getPelletAt(cell) >= 0) corridorPellets[corridor]++;
+					}
+					int next = graph.getNeighbour(cell, 0);
+					if (next == prev) next = graph.getNeighbour(cell, 1);
+					prev = cell;
+					cell = next;
+					length++;
+				}
+
+				if (isNew) {
+					corridorB[corridor] = cellJunctions[cell];
+					corridorLength[corridor] = length;
+				}
+				edgeTo[edge] = cellJunctions[cell];
+				edgeLength[edge] = length;
+				maxEdgeLength = Math.max(maxEdgeLength, length);
+				edge++;
+			}
+		}
+		edgeStart[numJunctions] = edge;
+	}
+
+	MazeGraph getGraph() {
+		return graph;
+	}
+
+	int getNumJunctions() {
+		return numJunctions;
+	}
+
+	int getNumCorridors() {
+		return numCorridors;
+	}
+
+	//junction id of a cell, or -1 if it is in a corridor or not in the maze
+	int getJunction(int cell) {
+		return cellJunctions[cell];
+	}
+
+	int getJunctionCell(int junction) {
+		return junctionCells[junction];
+	}
+
+	//true for a cell inside a corridor, where the only choice is to go on or turn back
+	boolean isCorridor(int cell) {
+		return cellCorridors[cell] >= 0;
+	}
+
+	int getDegree(int junction) {
+		return edgeStart[junction + 1] - edgeStart[junction];
+	}
+
+	//junction at the other end of a junction's i-th edge
+	int getEdgeTarget(int junction, int i) {
+		return edgeTo[edgeStart[junction] + i];
+	}
+
+	//steps along a junction's i-th edge
+	int getEdgeLength(int junction, int i) {
+		return edgeLength[edgeStart[junction] + i];
+	}
+
+	int getMaxEdgeLength() {
+		return maxEdgeLength;
+	}
+
+	int getCorridor(int cell) {
+		return cellCorridors[cell];
+	}
+
+	//steps from the corridor's end A to a cell in it
+	int getCorridorOffset(int cell) {
+		return cellOffsets[cell];
+	}
+
+	int getCorridorA(int corridor) {
+		return corridorA[corridor];
+	}
+
+	int getCorridorB(int corridor) {
+		return corridorB[corridor];
+	}
+
+	//steps from end A to end B
+	int getCorridorLength(int corridor) {
+		return corridorLength[corridor];
+	}
+
+	//pellets the maze file puts inside the corridor
+	int getCorridorPellets(int corridor) {
+		return corridorPellets[corridor];
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+
+//path lengths over a JunctionGraph, for mazes too big for a DistanceTable
+//a query runs Dijkstra from the start cell to every junction, with a bucket queue since the edge lengths
+//are small whole numbers (Dial's algorithm: the buckets are a ring of maxEdgeLength + 1 lists)
+//the distances are kept until a query comes from another start cell, and the evaluator asks for paths
+//from one cell to every pellet in a row, so most queries are a couple of lookups
+//a cell in a corridor is reached through the corridor's ends, or straight along it from the same corridor
+class JunctionPaths {
+	private JunctionGraph junctions;
+	private MazeGraph graph;
+
+	private int source = -1;	//cell the distances are from
+	private int[] dist;
+	private boolean[] done;
+
+	//bucket lists, a junction can be queued once per edge into it plus twice from the source
+	private int[] bucketHead;
+	private int[] entryNext;
+	private int[] entryJunction;
+	private int numEntries = 0;
+
+	//queue pops since the object was made, the same as the junctions settled or skipped
+	private long nodes = 0;
+
+	JunctionPaths(JunctionGraph junctions) {
+		this.junctions = junctions;
+		graph = junctions.getGraph();
+		int numJunctions = junctions.getNumJunctions();
+		dist = new int[numJunctions];
+		done = new boolean[numJunctions];
+		bucketHead = new int[junctions.getMaxEdgeLength() + 1];
+
+		int maxEntries = 2;
+		for (int j = 0; j < numJunctions; j++) {
+			maxEntries += junctions.getDegree(j);
+		}
+		entryNext = new int[maxEntries];
+		entryJunction = new int[maxEntries];
+	}
+
+	//number of moves between two cells, or DistanceTable.UNREACHABLE
+	int distance(int start, int target) {
+		if (!graph.contains(start) || !graph.contains(target)) return DistanceTable.UNREACHABLE;
+		if (start == target) return 0;
+		if (start != source) search(start);
+
+		int junction = junctions.getJunction(target);
+		if (junction >= 0) return dist[junction];
+
+		//through either end of the target's corridor
+		int corridor = junctions.getCorridor(target);
+		int offset = junctions.getCorridorOffset(target);
+		int best = shorter(DistanceTable.UNREACHABLE, dist[junctions.getCorridorA(corridor)], offset);
+		best = shorter(best, dist[junctions.getCorridorB(corridor)], junctions.getCorridorLength(corridor) - offset);
+
+		//or straight along it
+		if (junctions.getCorridor(start) == corridor) {
+			best = shorter(best, 0, Math.abs(offset - junctions.getCorridorOffset(start)));
+		}
+		return best;
+	}
+
+	long getNodes() {
+		return nodes;
+	}
+
+	//"dist" plus "extra", if that is shorter than "best"
+	private static int shorter(int best, int dist, int extra) {
+		if (dist == DistanceTable.UNREACHABLE) return best;
+		int length = dist + extra;
+		return (best == DistanceTable.UNREACHABLE || length < best) ? length : best;
+	}
+
+	//distances from a cell to every junction
+	private void search(int start) {
+		source = start;
+		Arrays.fill(dist, DistanceTable.UNREACHABLE);
+		Arrays.fill(done, false);
+		Arrays.fill(bucketHead, -1);
+		numEntries = 0;
+
+		int junction = junctions.getJunction(start);
+		if (junction >= 0) {
+			relax(junction, 0);
+		} else {
+			int corridor = junctions.getCorridor(start);
+			int offset = junctions.getCorridorOffset(start);
+			relax(junctions.getCorridorA(corridor), offset);
+			relax(junctions.getCorridorB(corridor), junctions.getCorridorLength(corridor) - offset);
+		}
+
+		//the smallest distance queued is never more than maxEdgeLength below the largest,
+		//so the ring never holds two distances in one bucket
+		int queued = numEntries;
+		int popped = 0;
+		for (int d = 0; popped < queued; d++) {
+			int bucket = d % bucketHead.length;
+			while (bucketHead[bucket] >= 0) {
+				int entry = bucketHead[bucket];
+				bucketHead[bucket] = entryNext[entry];
+				popped++;
+				nodes++;
+
+				int j = entryJunction[entry];
+				if (done[j] || dist[j] != d) continue;
+				done[j] = true;
+
+				for (int i = 0; i < junctions.getDegree(j); i++) {
+					int target = junctions.getEdgeTarget(j, i);
+					if (done[target]) continue;
+					int before = numEntries;
+					relax(target, d + junctions.getEdgeLength(j, i));
+					queued += numEntries - before;
+				}
+			}
+		}
+	}
+
+	//queues a junction if the distance is shorter than the one it has
+	private void relax(int junction, int d) {
+		if (dist[junction] != DistanceTable.UNREACHABLE && dist[junction] <= d) return;
+
+		dist[junction] = d;
+		int bucket = d % bucketHead.length;
+		int entry = numEntries++;
+		entryJunction[entry] = junction;
+		entryNext[entry] = bucketHead[bucket];
+		bucketHead[bucket] = entry;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Matthew Clark
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+
+//contents of a maze file: a "rows cols" line, one line of wall types per row,
+//then the number of pellets and a "row col" line per pellet
+//the file is read a block at a time and the numbers parsed straight from the bytes, so a
+//2000x2000 maze loads without a String per line or per number
+//a file that doesn't follow the format throws an IOException saying which line is wrong
+class MazeFile {
+	static final int MAX_CELLS = 1 << 26;
+
+	int numRows, numCols;
+	int[][] arrMaze;
+	int[][] arrPellets;		//{x, y} per pellet
+
+	//whitespace separated non-negative numbers and the line each one is on
+	private static class Tokenizer {
+		private InputStream in;
+		private byte[] buffer = new byte[1 << 16];
+		private int length = 0;
+		private int pos = 0;
+		private int line = 1;		//line of the next byte
+		private int tokenLine = 1;	//line of the last number read
+
+		Tokenizer(InputStream in) {
+			this.in = in;
+		}
+
+		//next byte as 0 to 255, or -1 at the end of the file
+		private int read() throws IOException {
+			if (pos == length) {
+				length = in.read(buffer, 0, buffer.length);
+				pos = 0;
+				if (length <= 0) {
+					length = 0;
+					return -1;
+				}
+			}
+			return buffer[pos++] & 0xFF;
+		}
+
+		//"what" names the number for the error message
+		int nextInt(String what) throws IOException {
+			int c = read();
+			while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+				if (c == '\n') line++;
+				c = read();
+			}
+			tokenLine = line;
+			if (c < 0) throw error("expected " + what + " but the file ended");
+			if (c < '0' || c > '9') throw error("expected " + what + " but found " + describe(c));
+
+			int value = 0;
+			for (; c >= '0' && c <= '9'; c = read()) {
+				if (value > (Integer.MAX_VALUE - 9) / 10) throw error(what + " is too large");
+				value = value * 10 + (c - '0');
+			}
+
+			//the number has to end at whitespace or the end of the file
+			if (c == '\n') line++;
+			else if (c >= 0 && c != ' ' && c != '\t' && c != '\r') {
+				throw error("expected " + what + " but found " + describe(c));
+			}
+			return value;
+		}
+
+		int getTokenLine() {
+			return tokenLine;
+		}
+
+		//checks nothing but whitespace follows the last number on its line
+		void endLine(String what) throws IOException {
+			if (line != tokenLine) return;
+
+			int c;
+			while ((c = read()) == ' ' || c == '\t' || c == '\r');
+			if (c == '\n') line++;
+			else if (c >= 0x80) throw error(describe(c) + " after " + what);
+			else if (c >= 0) throw error("too many numbers for " + what);
+		}
+
+		//checks nothing but whitespace is left in the file
+		void endFile(String what) throws IOException {
+			int c = read();
+			while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+				if (c == '\n') line++;
+				c = read();
+			}
+			tokenLine = line;
+			if (c >= 0x80) throw error(describe(c) + " after the pellets");
+			if (c >= 0) throw error(what);
+		}
+
+		//the file is plain ASCII, anything else (a byte order mark, UTF-8) is shown as a byte
+		private static String describe(int c) {
+			if (c >= 0x80 || c < ' ') return "byte 0x" + Integer.toHexString(c).toUpperCase();
+			return "'" + (char) c + "'";
+		}
+
+		IOException error(String message) {
+			return new IOException("line " + tokenLine + ": " + message);
+		}
+	}
+
+	//a maze file, or a generated maze if the name is a MazeGenerator spec
+	static MazeFile load(String source) throws IOException {
+		if (!MazeGenerator.isSpec(source)) return read(source);
+		try {
+			return MazeGenerator.generate(source);
+		} catch (IllegalArgumentException ex) {
+			throw new IOException(ex.getMessage());
+		}
+	}
+
+	static MazeFile read(String filename) throws IOException {
+		MazeFile maze = new MazeFile();
+		try (InputStream in = new FileInputStream(filename)) {
+			Tokenizer tokens = new Tokenizer(in);
+
+			//create the maze array
+			maze.numRows = tokens.nextInt("the number of rows");
+			int sizeLine = tokens.getTokenLine();
+			maze.numCols = tokens.nextInt("the number of columns");
+			if (tokens.getTokenLine() != sizeLine) throw tokens.error("the rows and columns should be on one line");
+			tokens.endLine("the maze size");
+			if (maze.numRows == 0 || maze.numCols == 0) throw tokens.error("the maze needs at least one row and column");
+			if ((long) maze.numRows * maze.numCols > MAX_CELLS) {
+				throw tokens.error("the maze has more than " + MAX_CELLS + " cells");
+			}
+
+			maze.arrMaze = new int[maze.numRows][maze.numCols];
+			String rowName = "a row of " + maze.numCols + " wall types";
+			//wall types at grid positions
+			for (int i = 0; i < maze.numRows; i++) {
+				int[] row = maze.arrMaze[i];
+				int rowLine = 0;
+				for (int j = 0; j < maze.numCols; j++) {
+					int wallType = tokens.nextInt("a wall type");
+					if (j == 0) {
+						rowLine = tokens.getTokenLine();
+					} else if (tokens.getTokenLine() != rowLine) {
+						throw new IOException("line " + rowLine + ": row " + i + " has " + j + " wall types but the maze has "
+								+ maze.numCols + " columns");
+					}
+					if (wallType > 3) throw tokens.error("wall type " + wallType + " should be 0 to 3");
+					row[j] = wallType;
+				}
+				tokens.endLine(rowName);
+			}
+
+			//blank lines are skipped
+			int numPellets = tokens.nextInt("the number of pellets");
+			tokens.endLine("the number of pellets");
+			if (numPellets > maze.numRows * maze.numCols) throw tokens.error("there are more pellets than cells");
+
+			maze.arrPellets = new int[numPellets][2];
+			for (int i = 0; i < numPellets; i++) {
+				int row = tokens.nextInt("a pellet's row");
+				int pelletLine = tokens.getTokenLine();
+				int col = tokens.nextInt("a pellet's column");
+				if (tokens.getTokenLine() != pelletLine) throw tokens.error("the pellet's row and column should be on one line");
+				tokens.endLine("a pellet");
+				if (row >= maze.numRows || col >= maze.numCols) {
+					throw tokens.error("pellet at row " + row + ", column " + col + " is outside the "
+							+ maze.numRows + "x" + maze.numCols + " maze");
+				}
+				maze.arrPellets[i][0] = col;	//col as x
+				maze.arrPellets[i][1] = row;	//row as y
+			}
+			tokens.endFile("there are more pellets than the " + numPellets + " listed");
+		}
+		return maze;
+	}
+
+	void write(String filename) throws IOException {
+		try (Writer out = new BufferedWriter(new FileWriter(filename))) {
+			write(out);
+		}
+	}
+
+	void write(Writer out) throws IOException {
+		out.write(numRows + " " + numCols + "\n");
+		char[] line = new char[numCols * 2];
+		for (int i = 0; i < numRows; i++) {
+			for (int j = 0; j < numCols; j++) {
+				line[j * 2] = (char) ('0' + arrMaze[i][j]);
+				line[j * 2 + 1] = (j < numCols - 1) ? ' ' : '\n';
+			}
+			out.write(line);
+		}
+		out.write("\n" + arrPellets.length + "\n");
+		for (int i = 0; i < arrPellets.length; i++) {
+			out.write(arrPellets[i][1] + " " + arrPellets[i][0] + "\n");	//row then col
+		}
+	}
+
+	MazeGraph createGraph() {
+		MazeGraph graph = new MazeGraph(arrMaze, numRows, numCols);
+		graph.setPellets(arrPellets);
+		return graph;
+	}
+}
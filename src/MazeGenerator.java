@@ -0,0 +1,202 @@
+/*
+ * Matthew Clark
+ */
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//makes mazes of any size in the maze file format, so the search can be tried on more than the hand-made ones
+//the maze starts as a spanning tree carved by a depth-first walk from (0, 0), so every cell is connected,
+//then some of the walls left are knocked down to make loops
+//a maze is named by a spec that HupmanSim, the benchmarks and the filename dialog accept in place of a file:
+//	gen:ROWSxCOLS[,loops=p][,corridor=n][,pellets=n][,seed=n]
+//"loops" is the chance of each remaining inside wall being removed (0 leaves no loops, 1 an open grid),
+//"corridor" the average length of a straight run (1 turns at random), "pellets" defaults to a tenth of the cells
+//usage: java MazeGenerator gen:100x100,loops=0.2 [output file]
+public class MazeGenerator {
+	static final String SPEC_PREFIX = "gen:";
+
+	private static final double DEFAULT_LOOPS = 0.1;
+	private static final int DEFAULT_CORRIDOR = 3;
+	private static final long DEFAULT_SEED = 1;
+
+	static boolean isSpec(String name) {
+		return name.startsWith(SPEC_PREFIX);
+	}
+
+	//throws IllegalArgumentException if the spec can't be read
+	static MazeFile generate(String spec) {
+		if (!isSpec(spec)) throw new IllegalArgumentException(spec + " doesn't start with " + SPEC_PREFIX);
+
+		String[] parts = spec.substring(SPEC_PREFIX.length()).split(",");
+		String[] size = parts[0].split("x");
+		if (size.length != 2) throw new IllegalArgumentException("expected " + SPEC_PREFIX + "ROWSxCOLS but got " + spec);
+		int rows, cols;
+		double loops = DEFAULT_LOOPS;
+		int corridor = DEFAULT_CORRIDOR;
+		int pellets = -1;
+		long seed = DEFAULT_SEED;
+		try {
+			rows = Integer.parseInt(size[0].trim());
+			cols = Integer.parseInt(size[1].trim());
+			for (int i = 1; i < parts.length; i++) {
+				String[] option = parts[i].split("=");
+				if (option.length != 2) throw new IllegalArgumentException("expected name=value but got " + parts[i]);
+
+				String value = option[1].trim();
+				if (option[0].trim().equals("loops")) {
+					loops = Double.parseDouble(value);
+				} else if (option[0].trim().equals("corridor")) {
+					corridor = Integer.parseInt(value);
+				} else if (option[0].trim().equals("pellets")) {
+					pellets = Integer.parseInt(value);
+				} else if (option[0].trim().equals("seed")) {
+					seed = Long.parseLong(value);
+				} else {
+					throw new IllegalArgumentException("unknown maze option " + option[0]);
+				}
+			}
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("bad number in " + spec);
+		}
+
+		if (pellets < 0) pellets = Math.max((int) ((long) rows * cols / 10), 1);
+		return generate(rows, cols, loops, corridor, pellets, seed);
+	}
+
+	static MazeFile generate(int rows, int cols, double loops, int corridor, int pellets, long seed) {
+		if (rows < 1 || cols < 1) throw new IllegalArgumentException("the maze needs at least one row and column");
+		if ((long) rows * cols > MazeFile.MAX_CELLS) {
+			throw new IllegalArgumentException("the maze has more than " + MazeFile.MAX_CELLS + " cells");
+		}
+		if (loops < 0 || loops > 1) throw new IllegalArgumentException("loops should be 0 to 1");
+		if (corridor < 1) throw new IllegalArgumentException("corridor should be at least 1");
+		if (pellets < 0 || pellets > rows * cols) throw new IllegalArgumentException("pellets should be 0 to " + rows * cols);
+
+		SplittableRandom random = new SplittableRandom(seed);
+		int numCells = rows * cols;
+
+		//every cell starts with a wall above it and to its right
+		int[][] arrMaze = new int[rows][cols];
+		for (int i = 0; i < rows; i++) {
+			Arrays.fill(arrMaze[i], 3);
+		}
+
+		//depth-first walk with an explicit stack, carrying on in the direction it came from when it can
+		//with a chance of 1 - 1/corridor
+		double straightChance = 1.0 - 1.0 / corridor;
+		boolean[] visited = new boolean[numCells];
+		byte[] cameFrom = new byte[numCells];	//direction the walk entered each cell in
+		int[] stack = new int[numCells];
+		int[] dirs = new int[4];
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		visited[0] = true;
+		cameFrom[0] = -1;
+		while (stackSize > 0) {
+			int cell = stack[stackSize - 1];
+			int x = cell % cols;
+			int y = cell / cols;
+
+			//unvisited neighbours, directions 0 left, 1 right, 2 up, 3 down like MazeGraph
+			int numDirs = 0;
+			boolean canGoStraight = false;
+			for (int dir = 0; dir < 4; dir++) {
+				int next = getNeighbour(x, y, dir, rows, cols);
+				if (next >= 0 && !visited[next]) {
+					dirs[numDirs++] = dir;
+					if (dir == cameFrom[cell]) canGoStraight = true;
+				}
+			}
+			if (numDirs == 0) {
+				stackSize--;
+				continue;
+			}
+
+			int dir = (canGoStraight && random.nextDouble() < straightChance) ? cameFrom[cell] : dirs[random.nextInt(numDirs)];
+			int next = getNeighbour(x, y, dir, rows, cols);
+			removeWall(arrMaze, x, y, dir);
+			visited[next] = true;
+			cameFrom[next] = (byte) dir;
+			stack[stackSize++] = next;
+		}
+
+		//loops, the outside walls stay
+		if (loops > 0) {
+			for (int y = 0; y < rows; y++) {
+				for (int x = 0; x < cols; x++) {
+					if (x < cols - 1 && (arrMaze[y][x] & 2) != 0 && random.nextDouble() < loops) arrMaze[y][x] &= ~2;
+					if (y > 0 && (arrMaze[y][x] & 1) != 0 && random.nextDouble() < loops) arrMaze[y][x] &= ~1;
+				}
+			}
+		}
+
+		//distinct pellet cells from a partial shuffle, numbered in cell order
+		int[] cells = new int[numCells];
+		for (int i = 0; i < numCells; i++) {
+			cells[i] = i;
+		}
+		for (int i = 0; i < pellets; i++) {
+			int j = i + random.nextInt(numCells - i);
+			int swap = cells[i];
+			cells[i] = cells[j];
+			cells[j] = swap;
+		}
+		Arrays.sort(cells, 0, pellets);
+
+		MazeFile maze = new MazeFile();
+		maze.numRows = rows;
+		maze.numCols = cols;
+		maze.arrMaze = arrMaze;
+		maze.arrPellets = new int[pellets][2];
+		for (int i = 0; i < pellets; i++) {
+			maze.arrPellets[i][0] = cells[i] % cols;	//col as x
+			maze.arrPellets[i][1] = cells[i] / cols;	//row as y
+		}
+		return maze;
+	}
+
+	//cell next to (x, y) in a direction, or -1 off the edge
+	private static int getNeighbour(int x, int y, int dir, int rows, int cols) {
+		if (dir == 0) return (x > 0) ? y * cols + x - 1 : -1;
+		if (dir == 1) return (x < cols - 1) ? y * cols + x + 1 : -1;
+		if (dir == 2) return (y > 0) ? (y - 1) * cols + x : -1;
+		return (y < rows - 1) ? (y + 1) * cols + x : -1;
+	}
+
+	//wall code 1 is a wall above the cell and 2 a wall to its right
+	private static void removeWall(int[][] arrMaze, int x, int y, int dir) {
+		if (dir == 0) arrMaze[y][x - 1] &= ~2;
+		else if (dir == 1) arrMaze[y][x] &= ~2;
+		else if (dir == 2) arrMaze[y][x] &= ~1;
+		else arrMaze[y + 1][x] &= ~1;
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.out.println("usage: java MazeGenerator " + SPEC_PREFIX + "ROWSxCOLS[,loops=p][,corridor=n][,pellets=n][,seed=n] [output file]");
+			System.exit(1);
+		}
+
+		String spec = isSpec(args[0]) ? args[0] : SPEC_PREFIX + args[0];
+		try {
+			MazeFile maze = generate(spec);
+			if (args.length == 2) {
+				maze.write(args[1]);
+			} else {
+				Writer out = new OutputStreamWriter(System.out);
+				maze.write(out);
+				out.flush();
+			}
+		} catch (IllegalArgumentException ex) {
+			System.out.println(ex.getMessage());
+			System.exit(1);
+		} catch (IOException ex) {
+			System.out.println("Can't write the maze: " + ex.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+
+//maze graph with cells indexed as y * numCols + x and adjacency stored in
+//compressed sparse row form: the neighbours of a cell are adjCells[adjStart[cell] .. adjStart[cell+1])
+//only cells reachable from (0, 0) are part of the graph
+//pellets are numbered by their order in the maze file
+class MazeGraph {
+	private int numRows, numCols, numCells;
+	private int[] adjStart;
+	private int[] adjCells;
+	private boolean[] inGraph;
+
+	private int[] pelletCells = new int[0];
+	private int[] cellPellets;
+
+	MazeGraph(int[][] arrMaze, int numRows, int numCols) {
+		this.numRows = numRows;
+		this.numCols = numCols;
+		numCells = numRows * numCols;
+		inGraph = new boolean[numCells];
+
+		//find the cells reachable from (0, 0) with an iterative flood fill
+		int[] stack = new int[numCells];
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		inGraph[0] = true;
+		int numEdges = 0;
+		while (stackSize > 0) {
+			int cell = stack[--stackSize];
+			int x = cellX(cell);
+			int y = cellY(cell);
+			for (int dir = 0; dir < 4; dir++) {
+				int adjCell = getMove(arrMaze, x, y, dir);
+				if (adjCell < 0) continue;
+
+				numEdges++;
+				if (!inGraph[adjCell]) {
+					inGraph[adjCell] = true;
+					stack[stackSize++] = adjCell;
+				}
+			}
+		}
+
+		//fill the rows in cell order, neighbours ordered left, right, up, down
+		adjStart = new int[numCells + 1];
+		adjCells = new int[numEdges];
+		int edge = 0;
+		for (int cell = 0; cell < numCells; cell++) {
+			adjStart[cell] = edge;
+			if (!inGraph[cell]) continue;
+
+			for (int dir = 0; dir < 4; dir++) {
+				int adjCell = getMove(arrMaze, cellX(cell), cellY(cell), dir);
+				if (adjCell >= 0) adjCells[edge++] = adjCell;
+			}
+		}
+		adjStart[numCells] = edge;
+
+		cellPellets = new int[numCells];
+		Arrays.fill(cellPellets, -1);
+	}
+
+	//arrPellets holds {x, y} pairs, a cell listed twice only gets one pellet
+	void setPellets(int[][] arrPellets) {
+		Arrays.fill(cellPellets, -1);
+		int[] cells = new int[arrPellets.length];
+		int count = 0;
+		for (int i = 0; i < arrPellets.length; i++) {
+			int cell = getCell(arrPellets[i][0], arrPellets[i][1]);
+			if (cellPellets[cell] < 0) {
+				cellPellets[cell] = count;
+				cells[count++] = cell;
+			}
+		}
+		pelletCells = Arrays.copyOf(cells, count);
+	}
+
+	//cell reached by moving from (x, y) in a direction (0 left, 1 right, 2 up, 3 down), or -1 if a wall is in the way
+	//wall code 1 is a wall above the cell, 2 a wall to its right and 3 both
+	private int getMove(int[][] arrMaze, int x, int y, int dir) {
+		int wallType = arrMaze[y][x];
+		if (dir == 0) {
+			if (x > 0 && arrMaze[y][x-1] != 2 && arrMaze[y][x-1] != 3) return getCell(x - 1, y);
+		} else if (dir == 1) {
+			if (x < numCols - 1 && wallType != 2 && wallType != 3) return getCell(x + 1, y);
+		} else if (dir == 2) {
+			if (y > 0 && wallType != 1 && wallType != 3) return getCell(x, y - 1);
+		} else {
+			if (y < numRows - 1 && arrMaze[y+1][x] != 1 && arrMaze[y+1][x] != 3) return getCell(x, y + 1);
+		}
+		return -1;
+	}
+
+	int getRows() {
+		return numRows;
+	}
+
+	int getCols() {
+		return numCols;
+	}
+
+	int getNumCells() {
+		return numCells;
+	}
+
+	int getCell(int x, int y) {
+		return y * numCols + x;
+	}
+
+	int cellX(int cell) {
+		return cell % numCols;
+	}
+
+	int cellY(int cell) {
+		return cell / numCols;
+	}
+
+	boolean contains(int cell) {
+		return cell >= 0 && cell < numCells && inGraph[cell];
+	}
+
+	int getDegree(int cell) {
+		return adjStart[cell + 1] - adjStart[cell];
+	}
+
+	int getNeighbour(int cell, int i) {
+		return adjCells[adjStart[cell] + i];
+	}
+
+	int getNumPellets() {
+		return pelletCells.length;
+	}
+
+	int getPelletCell(int pellet) {
+		return pelletCells[pellet];
+	}
+
+	//pellet id at a cell, or -1
+	int getPelletAt(int cell) {
+		return cellPellets[cell];
+	}
+}
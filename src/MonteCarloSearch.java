@@ -0,0 +1,537 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//Monte Carlo tree search: UCT selection down a tree of moves, then a quick greedy playout to score the new leaf
+//hupman picks the move that scores best for hupman, a ghost picks its best move with the ghost chance and one of
+//the others otherwise, the same way min() plays the ghosts, so the ghosts' randomness is averaged over instead
+//of being one draw per node
+//the tree is kept in flat arrays and playouts move the agents around in a few int arrays, so once the arrays
+//have grown to the maze nothing is allocated per playout
+//the part of the tree below the moves that were played is kept for the next turn
+class MonteCarloSearch {
+	private static final double EXPLORATION = 0.7;		//UCT constant, rewards go from 0 to 1
+	private static final int PLAYOUT_MOVES = 40;		//hupman moves a playout goes on for before it is scored
+	private static final double RANDOM_MOVE = 0.1;		//chance of hupman making a random move in a playout
+	private static final int HORIZON_PELLETS = 5;		//pellets eaten in a playout that count as half the score
+	static final int DEFAULT_PLAYOUTS = 2000;	//when there is neither a time nor a playout budget
+
+	private MazeGraph graph;
+	private DistanceTable distTable;
+	private int maxNodes;
+	private SearchStats stats = new SearchStats();
+	private SearchMetrics metrics = null;
+
+	//tree, the children of a node are stored together from firstChild[node], -1 until it is expanded
+	private int[] firstChild, numChildren, moveCell, visits;
+	private double[] totalReward;
+	//the kept subtree is copied into these when the root moves down, then the two sets swap
+	private int[] nextFirstChild, nextNumChildren, nextMoveCell, nextVisits;
+	private double[] nextTotalReward;
+	private int[] copyQueue;
+	private int numNodes = 0;
+	private State treeState = null;		//state at the root of the tree
+	private int[] path = new int[64];	//nodes visited by the current playout
+
+	//the root position
+	private int rootHupman;
+	private int[] rootGhosts = new int[0];
+	private int rootTurn;
+	private int rootPellets;
+
+	//position during a playout, the pellets it eats are put back when it is done
+	private int hupmanCell;
+	private int[] ghostCells = new int[0];
+	private int numGhosts;
+	private int turn;
+	private long[] pelletBits = new long[0];
+	private int pelletsLeft;
+	private int[] eaten;
+	private int numEaten;
+	private double eatenScore;
+	private int hupmanMoves;
+	private boolean dead;
+
+	//path length from each cell to the nearest pellet at the root, hupman's playout moves follow it down
+	private int[] pelletDist;
+	private int[] queue;
+	private int fieldPellets = -1;
+
+	MonteCarloSearch(MazeGraph graph, DistanceTable distTable, int maxNodes) {
+		this.graph = graph;
+		this.distTable = distTable;
+		this.maxNodes = Math.max(maxNodes, 16);
+
+		firstChild = new int[this.maxNodes];
+		numChildren = new int[this.maxNodes];
+		moveCell = new int[this.maxNodes];
+		visits = new int[this.maxNodes];
+		totalReward = new double[this.maxNodes];
+		nextFirstChild = new int[this.maxNodes];
+		nextNumChildren = new int[this.maxNodes];
+		nextMoveCell = new int[this.maxNodes];
+		nextVisits = new int[this.maxNodes];
+		nextTotalReward = new double[this.maxNodes];
+		copyQueue = new int[this.maxNodes];
+
+		eaten = new int[Math.max(graph.getNumPellets(), 1)];
+		pelletDist = new int[graph.getNumCells()];
+		queue = new int[graph.getNumCells()];
+	}
+
+	void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	//forgets the tree, see Searcher.newGame
+	void newGame() {
+		treeState = null;
+		numNodes = 0;
+		fieldPellets = -1;
+	}
+
+	//plays playouts until the time or playout budget runs out (either can be 0 for no limit)
+	//and returns the state after the chosen move, with its pellet eaten and hupman's death applied
+	//"ghostChance" is the chance of a ghost playing its best move, "random" makes every random choice,
+	//so a playout budget with the same seed makes the same moves
+	//the playouts draw from one generator split off "random" and a ghost's move is drawn from "random" once,
+	//so "random" moves on the same amount every turn however many playouts the time budget allows
+	State search(State rootState, long moveTimeMs, int maxPlayouts, double ghostChance, SplittableRandom random) {
+		long startTime = System.nanoTime();
+		long deadline = (moveTimeMs > 0) ? startTime + moveTimeMs * 1000000 : Long.MAX_VALUE;
+		if (moveTimeMs <= 0 && maxPlayouts <= 0) maxPlayouts = DEFAULT_PLAYOUTS;
+		stats.clear();
+
+		moveRoot(rootState);
+		loadRoot(rootState);
+		int rootCell = (rootTurn == 0) ? rootHupman : rootGhosts[rootTurn - 1];
+		int degree = graph.getDegree(rootCell);
+		resetPlayout();
+		if (numChildren[0] == 0) expand(0);
+
+		//nothing to choose between
+		int playouts = (degree > 1) ? grow(deadline, maxPlayouts, ghostChance, random.split()) : 0;
+
+		State bestState = new State(rootState);
+		if (degree == 0) {
+			Searcher.moveAgent(bestState, rootCell);
+			return recordMove(bestState, playouts, startTime);
+		}
+
+		//hupman plays the move tried most, a ghost its best move (or not) like min()
+		int first = firstChild[0];
+		int best = 0;
+		double[] weights = new double[degree];
+		for (int i = 0; i < degree; i++) {
+			weights[i] = (visits[first + i] > 0) ? totalReward[first + i] / visits[first + i] : 0.5;
+			if (rootTurn == 0 && (visits[first + i] > visits[first + best]
+					|| (visits[first + i] == visits[first + best] && weights[i] > weights[best]))) {
+				best = i;
+			}
+		}
+		if (rootTurn != 0) best = Searcher.min(weights, degree, ghostChance, random);
+
+		Searcher.moveAgent(bestState, moveCell[first + best]);
+		applyRules(bestState);
+		bestState.setWeight(weights[best]);
+		return recordMove(bestState, playouts, startTime);
+	}
+
+	private State recordMove(State bestState, int playouts, long startTime) {
+		if (metrics != null) {
+			stats.leaves = playouts;
+			metrics.recordMove(stats, stats.maxPly, System.nanoTime() - startTime);
+		}
+		return bestState;
+	}
+
+	//grows the tree from the position the next move will be made from while the game waits for the current move
+	//to be due, moveRoot keeps what it grew when the search comes to that position or one after it
+	//the time is counted as pondering in the metrics, not as a move
+	void ponder(State rootState, long ponderTimeMs, double ghostChance, SplittableRandom random) {
+		long startTime = System.nanoTime();
+		stats.clear();
+
+		moveRoot(rootState);
+		loadRoot(rootState);
+		int rootCell = (rootTurn == 0) ? rootHupman : rootGhosts[rootTurn - 1];
+		resetPlayout();
+		if (numChildren[0] == 0) expand(0);
+		if (graph.getDegree(rootCell) > 0) grow(startTime + ponderTimeMs * 1000000, 0, ghostChance, random);
+
+		if (metrics != null) metrics.recordPonder(stats, System.nanoTime() - startTime);
+	}
+
+	//playouts until the deadline or the playout budget, returns how many were played
+	private int grow(long deadline, int maxPlayouts, double ghostChance, SplittableRandom random) {
+		int playouts = 0;
+		while (maxPlayouts <= 0 || playouts < maxPlayouts) {
+			if ((playouts & 63) == 0 && System.nanoTime() >= deadline && playouts > 0) break;
+			playout(ghostChance, random);
+			playouts++;
+		}
+		return playouts;
+	}
+
+	//eats the pellet under hupman and kills hupman if a ghost is in the same cell, like the evaluator does
+	private void applyRules(State testState) {
+		int pellet = graph.getPelletAt(testState.getHupmanCell());
+		if (testState.hasPellet(pellet)) {
+			testState.setUneatenSteps(0);
+			testState.removePellet(pellet);
+		}
+		for (int i = 0; i < testState.getNumGhosts(); i++) {
+			if (testState.getGhostCell(i) == testState.getHupmanCell()) testState.setDead(true);
+		}
+	}
+
+	//keeps the subtree of the position rootState is in, or starts a new tree
+	//with cheap ghost policies a whole round of plies is played between searches, so the tree is walked down
+	//every ply played since the last search: each agent that moved is followed to the cell it has in rootState
+	//an agent that moved more than once went through a cell that isn't known, so the tree starts over then
+	private void moveRoot(State rootState) {
+		int newRoot = -1;
+		int plies = getPly(rootState) - ((treeState != null) ? getPly(treeState) : 0);
+		if (treeState != null && numNodes > 0 && plies >= 0 && plies <= rootState.getNumGhosts() + 1) {
+			State testState = treeState;
+			newRoot = 0;
+			for (int ply = 0; ply < plies && newRoot >= 0; ply++) {
+				int turn = testState.getTurn();
+				int cell = (turn == 0) ? rootState.getHupmanCell() : rootState.getGhostCell(turn - 1);
+				int child = -1;
+				for (int i = 0; i < numChildren[newRoot] && child < 0; i++) {
+					if (moveCell[firstChild[newRoot] + i] == cell) child = firstChild[newRoot] + i;
+				}
+				newRoot = child;
+				if (child < 0) break;
+
+				testState = new State(testState);
+				Searcher.moveAgent(testState, cell);
+				applyRules(testState);
+			}
+			if (newRoot >= 0 && (testState.getHash() != rootState.getHash() || testState.getDead() != rootState.getDead())) {
+				newRoot = -1;
+			}
+		}
+		treeState = new State(rootState);
+
+		if (newRoot == 0) return;
+		if (newRoot < 0) {
+			numNodes = 1;
+			firstChild[0] = -1;
+			numChildren[0] = 0;
+			visits[0] = 0;
+			totalReward[0] = 0;
+			return;
+		}
+
+		//breadth first copy, so each node's children stay together
+		int head = 0, tail = 0;
+		copyQueue[tail++] = newRoot;
+		for (; head < tail; head++) {
+			int node = copyQueue[head];
+			nextMoveCell[head] = moveCell[node];
+			nextVisits[head] = visits[node];
+			nextTotalReward[head] = totalReward[node];
+			nextNumChildren[head] = numChildren[node];
+			nextFirstChild[head] = (numChildren[node] > 0) ? tail : -1;
+			for (int i = 0; i < numChildren[node]; i++) {
+				copyQueue[tail++] = firstChild[node] + i;
+			}
+		}
+		numNodes = tail;
+
+		int[] swap = firstChild;
+		firstChild = nextFirstChild;
+		nextFirstChild = swap;
+		swap = numChildren;
+		numChildren = nextNumChildren;
+		nextNumChildren = swap;
+		swap = moveCell;
+		moveCell = nextMoveCell;
+		nextMoveCell = swap;
+		swap = visits;
+		visits = nextVisits;
+		nextVisits = swap;
+		double[] swapReward = totalReward;
+		totalReward = nextTotalReward;
+		nextTotalReward = swapReward;
+	}
+
+	//plies played from the start of the game to a state
+	private static int getPly(State state) {
+		int turn = state.getTurn();
+		int steps = (turn == 0) ? state.getSteps() : state.getSteps() - 1;
+		return steps * (state.getNumGhosts() + 1) + turn;
+	}
+
+	private void loadRoot(State rootState) {
+		numGhosts = rootState.getNumGhosts();
+		if (rootGhosts.length != numGhosts) {
+			rootGhosts = new int[numGhosts];
+			ghostCells = new int[numGhosts];
+		}
+		for (int i = 0; i < numGhosts; i++) {
+			rootGhosts[i] = rootState.getGhostCell(i);
+		}
+		rootHupman = rootState.getHupmanCell();
+		rootTurn = rootState.getTurn();
+		rootPellets = rootState.getPelletsLeft();
+
+		if (pelletBits.length != rootState.getPelletWords()) pelletBits = new long[rootState.getPelletWords()];
+		for (int i = 0; i < pelletBits.length; i++) {
+			pelletBits[i] = rootState.getPelletWord(i);
+		}
+
+		//pellets only go during a game, so the count says whether the field is out of date
+		if (rootPellets != fieldPellets) {
+			buildPelletDist();
+			fieldPellets = rootPellets;
+		}
+	}
+
+	//breadth first search out from every pellet at once
+	private void buildPelletDist() {
+		Arrays.fill(pelletDist, DistanceTable.UNREACHABLE);
+		int head = 0, tail = 0;
+		for (int word = 0; word < pelletBits.length; word++) {
+			for (long bits = pelletBits[word]; bits != 0; bits &= bits - 1) {
+				int cell = graph.getPelletCell((word << 6) + Long.numberOfTrailingZeros(bits));
+				if (pelletDist[cell] != 0) {
+					pelletDist[cell] = 0;
+					queue[tail++] = cell;
+				}
+			}
+		}
+		while (head < tail) {
+			int cell = queue[head++];
+			for (int i = 0; i < graph.getDegree(cell); i++) {
+				int adjCell = graph.getNeighbour(cell, i);
+				if (pelletDist[adjCell] == DistanceTable.UNREACHABLE) {
+					pelletDist[adjCell] = pelletDist[cell] + 1;
+					queue[tail++] = adjCell;
+				}
+			}
+		}
+	}
+
+	private void resetPlayout() {
+		hupmanCell = rootHupman;
+		System.arraycopy(rootGhosts, 0, ghostCells, 0, numGhosts);
+		turn = rootTurn;
+		pelletsLeft = rootPellets;
+		numEaten = 0;
+		eatenScore = 0;
+		hupmanMoves = 0;
+		dead = false;
+	}
+
+	//one selection, expansion, playout and backup from the root
+	private void playout(double ghostChance, SplittableRandom random) {
+		resetPlayout();
+		int node = 0;
+		int depth = 0;
+		path[depth++] = node;
+
+		//down the tree
+		while (numChildren[node] > 0 && !dead && pelletsLeft > 0) {
+			node = select(node, ghostChance, random);
+			move(moveCell[node]);
+			if (depth == path.length) path = Arrays.copyOf(path, depth * 2);
+			path[depth++] = node;
+			stats.nodes++;
+		}
+
+		//grow the tree by a leaf that has been played out from before
+		if (!dead && pelletsLeft > 0 && visits[node] > 0 && expand(node)) {
+			node = firstChild[node] + random.nextInt(numChildren[node]);
+			move(moveCell[node]);
+			if (depth == path.length) path = Arrays.copyOf(path, depth * 2);
+			path[depth++] = node;
+			stats.nodes++;
+		}
+		stats.maxPly = Math.max(stats.maxPly, depth - 1);
+
+		//play on with the greedy policies
+		int lastMove = hupmanMoves + PLAYOUT_MOVES;
+		while (!dead && pelletsLeft > 0 && hupmanMoves < lastMove) {
+			move((turn == 0) ? getHupmanMove(random) : getGhostMove(turn - 1, ghostChance, random));
+			stats.nodes++;
+		}
+		double reward = getReward();
+
+		//put the pellets back
+		for (int i = 0; i < numEaten; i++) {
+			pelletBits[eaten[i] >> 6] |= 1L << eaten[i];
+		}
+
+		for (int i = 0; i < depth; i++) {
+			visits[path[i]]++;
+			totalReward[path[i]] += reward;
+		}
+	}
+
+	//UCT from the point of view of whoever is moving, a ghost doesn't play its best move every time
+	private int select(int node, double ghostChance, SplittableRandom random) {
+		int first = firstChild[node];
+		int count = numChildren[node];
+		double logVisits = Math.log(visits[node] + 1);
+		int best = first;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < first + count; child++) {
+			if (visits[child] == 0) {
+				best = child;
+				break;
+			}
+			double mean = totalReward[child] / visits[child];
+			if (turn != 0) mean = 1.0 - mean;
+			double score = mean + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+			if (score > bestScore) {
+				bestScore = score;
+				best = child;
+			}
+		}
+
+		if (turn != 0 && count > 1 && random.nextDouble() >= ghostChance) {
+			int other = first + random.nextInt(count - 1);
+			best = (other >= best) ? other + 1 : other;
+		}
+		return best;
+	}
+
+	//adds a child for every move of the agent whose turn it is, if there is room
+	private boolean expand(int node) {
+		int cell = (turn == 0) ? hupmanCell : ghostCells[turn - 1];
+		int degree = graph.getDegree(cell);
+		if (degree == 0 || numNodes + degree > maxNodes) return false;
+
+		firstChild[node] = numNodes;
+		numChildren[node] = degree;
+		for (int i = 0; i < degree; i++) {
+			int child = numNodes + i;
+			moveCell[child] = graph.getNeighbour(cell, i);
+			firstChild[child] = -1;
+			numChildren[child] = 0;
+			visits[child] = 0;
+			totalReward[child] = 0;
+		}
+		numNodes += degree;
+		stats.expanded++;
+		stats.children += degree;
+		return true;
+	}
+
+	//moves the agent whose turn it is, eats a pellet and checks for a ghost in hupman's cell
+	private void move(int cell) {
+		if (turn == 0) {
+			hupmanCell = cell;
+			hupmanMoves++;
+		} else {
+			ghostCells[turn - 1] = cell;
+		}
+		turn = (turn == numGhosts) ? 0 : turn + 1;
+
+		int pellet = graph.getPelletAt(hupmanCell);
+		if (pellet >= 0 && (pelletBits[pellet >> 6] & (1L << pellet)) != 0) {
+			pelletBits[pellet >> 6] &= ~(1L << pellet);
+			eaten[numEaten++] = pellet;
+			pelletsLeft--;
+
+			//sooner is better
+			eatenScore += 1.0 / (1.0 + 0.05 * hupmanMoves);
+		}
+		for (int i = 0; i < numGhosts; i++) {
+			if (ghostCells[i] == hupmanCell) dead = true;
+		}
+	}
+
+	//close to 1 for clearing the maze quickly, close to 0 for dying, in between for the pellets eaten on the way
+	private double getReward() {
+		if (pelletsLeft == 0 && !dead) return 0.75 + 0.25 / (1.0 + 0.02 * hupmanMoves);
+
+		//a little for getting closer to the pellets the root had
+		double progress = eatenScore;
+		int dist = pelletDist[hupmanCell];
+		if (dist != DistanceTable.UNREACHABLE) progress += 0.5 / (1 + dist);
+		double share = progress / (progress + HORIZON_PELLETS);
+		return dead ? 0.1 * share : 0.3 + 0.45 * share;
+	}
+
+	//playout policy: a pellet next to hupman, otherwise downhill to the nearest pellet, keeping out of
+	//the ghosts' cells and away from their neighbours when it can
+	private int getHupmanMove(SplittableRandom random) {
+		int degree = graph.getDegree(hupmanCell);
+		if (degree == 0) return hupmanCell;
+		if (random.nextDouble() < RANDOM_MOVE) return graph.getNeighbour(hupmanCell, random.nextInt(degree));
+
+		int bestCell = graph.getNeighbour(hupmanCell, random.nextInt(degree));
+		int bestScore = Integer.MAX_VALUE;
+		int ties = 0;
+		for (int i = 0; i < degree; i++) {
+			int cell = graph.getNeighbour(hupmanCell, i);
+			int score;
+			int pellet = graph.getPelletAt(cell);
+			if (pellet >= 0 && (pelletBits[pellet >> 6] & (1L << pellet)) != 0) score = 0;
+			else score = (pelletDist[cell] == DistanceTable.UNREACHABLE) ? 1 << 20 : pelletDist[cell] + 1;
+
+			int ghostDist = getGhostDistance(cell);
+			if (ghostDist == 0) continue;
+			if (ghostDist == 1) score += 1 << 24;
+
+			if (score < bestScore) {
+				bestScore = score;
+				bestCell = cell;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0) {
+				bestCell = cell;
+			}
+		}
+		return bestCell;
+	}
+
+	//0 if a ghost is in the cell, 1 if one is next to it, otherwise 2
+	private int getGhostDistance(int cell) {
+		int dist = 2;
+		for (int i = 0; i < numGhosts; i++) {
+			int ghostCell = ghostCells[i];
+			if (ghostCell == cell) return 0;
+			for (int j = 0; j < graph.getDegree(cell); j++) {
+				if (graph.getNeighbour(cell, j) == ghostCell) dist = 1;
+			}
+		}
+		return dist;
+	}
+
+	//playout policy: with the ghost chance a step towards hupman, otherwise any move
+	private int getGhostMove(int ghost, double ghostChance, SplittableRandom random) {
+		int ghostCell = ghostCells[ghost];
+		int degree = graph.getDegree(ghostCell);
+		if (degree == 0) return ghostCell;
+		if (random.nextDouble() >= ghostChance) return graph.getNeighbour(ghostCell, random.nextInt(degree));
+
+		int bestCell = ghostCell;
+		int bestDist = Integer.MAX_VALUE;
+		int ties = 0;
+		for (int i = 0; i < degree; i++) {
+			int cell = graph.getNeighbour(ghostCell, i);
+			int dist = getDistance(cell, hupmanCell);
+			if (dist < bestDist) {
+				bestDist = dist;
+				bestCell = cell;
+				ties = 1;
+			} else if (dist == bestDist && random.nextInt(++ties) == 0) {
+				bestCell = cell;
+			}
+		}
+		return bestCell;
+	}
+
+	//the real path length when the maze has a distance table, otherwise the distance on the grid ignoring walls
+	private int getDistance(int cellA, int cellB) {
+		if (distTable != null) return distTable.distance(cellA, cellB);
+		return Math.abs(graph.cellX(cellA) - graph.cellX(cellB)) + Math.abs(graph.cellY(cellA) - graph.cellY(cellB));
+	}
+}
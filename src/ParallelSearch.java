@@ -0,0 +1,187 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//iterative deepening with the root moves searched in parallel on a ForkJoinPool
+//only the root is split: every root move has its own Searcher (working state, undo stack, move ordering
+//and evaluator), so the only thing the threads share is the transposition table
+//a cell has at most 4 neighbours, so more than 4 threads would have nothing to do and the pool is capped there
+//each root move task gets its own generator split off the turn's, so the threads never share one
+//and the random choices don't depend on which thread ran which task, but they are not the same
+//draws the sequential search makes
+class ParallelSearch {
+	private static final int MAX_DEGREE = 4;
+
+	private MazeGraph graph;
+	private Evaluator evaluator;
+	private ForkJoinPool pool;
+	private Searcher[] searchers = new Searcher[MAX_DEGREE];
+	private TranspositionTable table;
+	private int completedDepth = 0;
+	private SearchMetrics metrics = null;
+	private SearchStats moveStats = new SearchStats();
+
+	//searches one root move to a depth
+	private static class RootMoveTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private Searcher searcher;
+		private State childState;
+		private int depth;
+		private long deadline;
+		private int rootTurn;
+		private double minProb;
+		private int evalFunction;
+		private SplittableRandom random;
+		private double weight;
+
+		RootMoveTask(Searcher searcher, State childState, int depth, long deadline, int rootTurn,
+					 double minProb, int evalFunction, SplittableRandom random) {
+			this.searcher = searcher;
+			this.childState = childState;
+			this.depth = depth;
+			this.deadline = deadline;
+			this.rootTurn = rootTurn;
+			this.minProb = minProb;
+			this.evalFunction = evalFunction;
+			this.random = random;
+		}
+
+		@Override
+		protected void compute() {
+			weight = searcher.searchValue(childState, depth, deadline, rootTurn, minProb, evalFunction, random);
+		}
+	}
+
+	//"junctions" is shared by every evaluator, see Evaluator, and may be null
+	ParallelSearch(MazeGraph graph, DistanceTable distTable, JunctionGraph junctions, TranspositionTable table,
+				   int numThreads) {
+		this.graph = graph;
+		this.table = table;
+		evaluator = new Evaluator(graph, distTable, junctions);
+		pool = new ForkJoinPool(Math.min(Math.max(numThreads, 1), MAX_DEGREE));
+		for (int i = 0; i < searchers.length; i++) {
+			searchers[i] = new Searcher(graph, new Evaluator(graph, distTable, junctions));
+			searchers[i].setTranspositionTable(table);
+		}
+	}
+
+	int getThreads() {
+		return pool.getParallelism();
+	}
+
+	//see Searcher.newGame, the searchers share one table
+	void newGame() {
+		for (int i = 0; i < searchers.length; i++) {
+			searchers[i].newGame();
+		}
+	}
+
+	//see Searcher.setMacroMoves
+	void setMacroMoves(JunctionGraph junctions) {
+		for (int i = 0; i < searchers.length; i++) {
+			searchers[i].setMacroMoves(junctions);
+		}
+	}
+
+	void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	//depth of the last iteration that finished
+	int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	//same contract as Searcher.searchTimed
+	State searchTimed(State rootState, long moveTimeMs, int maxDepth, double minProb, int evalFunction,
+					  SplittableRandom random) {
+		long startTime = System.nanoTime();
+		long deadline = startTime + moveTimeMs * 1000000;
+		int turn = rootState.getTurn();
+		int rootCell = (turn == 0) ? rootState.getHupmanCell() : rootState.getGhostCell(turn - 1);
+		int degree = graph.getDegree(rootCell);
+
+		//the subtree below a move is searched before the move's own weight is applied
+		State[] childStates = new State[degree];
+		double[] moveWeights = new double[degree];
+		evaluator.startTurn(rootState);
+		for (int i = 0; i < degree; i++) {
+			childStates[i] = new State(rootState);
+			Searcher.moveAgent(childStates[i], graph.getNeighbour(rootCell, i));
+			moveWeights[i] = evaluator.getMoveWeight(new State(childStates[i]), evalFunction);
+		}
+
+		if (table != null) table.nextSearch();
+		for (int i = 0; i < degree; i++) {
+			searchers[i].clearStats();
+			searchers[i].startTurn(childStates[i]);
+		}
+		completedDepth = 0;
+		double[] weights = new double[degree];
+		double[] completedWeights = new double[degree];
+		RootMoveTask[] tasks = new RootMoveTask[degree];
+
+		//the tasks split their generators off one split from the game's, however many iterations finish
+		SplittableRandom turnRandom = random.split();
+		for (int depth = 1; depth <= Math.max(maxDepth, 1); depth++) {
+			//the first iteration always finishes so there is a move to play
+			long iterDeadline = (depth == 1) ? Long.MAX_VALUE : deadline;
+			for (int i = 0; i < degree; i++) {
+				tasks[i] = new RootMoveTask(searchers[i], childStates[i], depth - 1, iterDeadline, turn, minProb,
+						evalFunction, turnRandom.split());
+			}
+			pool.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+
+			boolean aborted = false;
+			for (int i = 0; i < degree; i++) {
+				if (Double.isNaN(tasks[i].weight)) aborted = true;
+				weights[i] = tasks[i].weight + moveWeights[i];
+			}
+			if (aborted) break;
+
+			System.arraycopy(weights, 0, completedWeights, 0, degree);
+			completedDepth = depth;
+
+			//nothing to choose between
+			if (degree == 1) break;
+		}
+
+		//hupman always thinks the ghost will choose the best, a ghost's random choice is made once
+		//from the last iteration that finished
+		int bestIndex;
+		if (turn == 0) bestIndex = Searcher.max(completedWeights, degree);
+		else bestIndex = Searcher.min(completedWeights, degree, minProb, random);
+		double bestWeight = completedWeights[bestIndex];
+
+		//apply the chosen move's pellet and death to the state that gets played
+		State bestState = new State(childStates[bestIndex]);
+		evaluator.getMoveWeight(bestState, evalFunction);
+		bestState.setWeight(bestWeight);
+
+		//one move for all the root move searchers together
+		if (metrics != null) {
+			moveStats.clear();
+			for (int i = 0; i < degree; i++) {
+				moveStats.add(searchers[i].getStats());
+			}
+
+			//the searchers start one ply below the root
+			moveStats.nodes++;
+			moveStats.expanded++;
+			moveStats.children += degree;
+			moveStats.maxPly++;
+			metrics.recordMove(moveStats, completedDepth, System.nanoTime() - startTime);
+		}
+		return bestState;
+	}
+}
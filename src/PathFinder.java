@@ -0,0 +1,141 @@
+/*
+ * Matthew Clark
+ */
+
+//A* over cell indices (y * numCols + x)
+//the open list is a binary heap and the scratch arrays are stamped with a search generation,
+//so nothing has to be cleared between searches
+class PathFinder {
+	private MazeGraph graph;
+	private int numCols;
+
+	//per-search scratch, only valid where the stamp matches the current generation
+	private int[] gCost;
+	private int[] parent;
+	private int[] openStamp;
+	private int[] closedStamp;
+	private int generation = 0;
+
+	//open list as a min-heap of (fCost << 32 | cell)
+	private long[] heap;
+	private int heapSize = 0;
+
+	PathFinder(MazeGraph graph) {
+		this.graph = graph;
+		numCols = graph.getCols();
+		int numCells = graph.getNumCells();
+
+		gCost = new int[numCells];
+		parent = new int[numCells];
+		openStamp = new int[numCells];
+		closedStamp = new int[numCells];
+
+		//a cell is pushed at most once per incoming edge (4 per cell)
+		heap = new long[numCells * 4 + 1];
+	}
+
+	//number of moves between two cells, or DistanceTable.UNREACHABLE
+	int distance(int start, int target) {
+		return search(start, target);
+	}
+
+	//cells along the shortest path (excluding start, including target), or null if there is none
+	int[] findPath(int start, int target) {
+		int dist = search(start, target);
+		if (dist == DistanceTable.UNREACHABLE) return null;
+
+		int[] path = new int[dist];
+		int cell = target;
+		for (int i = dist - 1; i >= 0; i--) {
+			path[i] = cell;
+			cell = parent[cell];
+		}
+		return path;
+	}
+
+	private int search(int start, int target) {
+		if (!graph.contains(start) || !graph.contains(target)) return DistanceTable.UNREACHABLE;
+		if (start == target) return 0;
+
+		nextGeneration();
+		heapSize = 0;
+
+		gCost[start] = 0;
+		parent[start] = -1;
+		openStamp[start] = generation;
+		push(heuristic(start, target), start);
+
+		while (heapSize > 0) {
+			int cell = pop();
+
+			//skip stale heap entries for cells that were already expanded
+			if (closedStamp[cell] == generation) continue;
+			closedStamp[cell] = generation;
+
+			if (cell == target) return gCost[cell];
+
+			//edge costs are all 1 and the heuristic is consistent, so closed cells never reopen
+			int nextG = gCost[cell] + 1;
+			int degree = graph.getDegree(cell);
+			for (int i = 0; i < degree; i++) {
+				int adjCell = graph.getNeighbour(cell, i);
+				if (closedStamp[adjCell] == generation) continue;
+
+				if (openStamp[adjCell] != generation || nextG < gCost[adjCell]) {
+					openStamp[adjCell] = generation;
+					gCost[adjCell] = nextG;
+					parent[adjCell] = cell;
+					push(nextG + heuristic(adjCell, target), adjCell);
+				}
+			}
+		}
+
+		//no path exists
+		return DistanceTable.UNREACHABLE;
+	}
+
+	private int heuristic(int cell, int target) {
+		return Math.abs(cell % numCols - target % numCols) + Math.abs(cell / numCols - target / numCols);
+	}
+
+	private void nextGeneration() {
+		generation++;
+
+		//stamps wrapped around, so old stamps could match again
+		if (generation == 0) {
+			for (int i = 0; i < openStamp.length; i++) {
+				openStamp[i] = 0;
+				closedStamp[i] = 0;
+			}
+			generation = 1;
+		}
+	}
+
+	private void push(int fCost, int cell) {
+		long entry = ((long) fCost << 32) | cell;
+		int i = heapSize++;
+		while (i > 0) {
+			int up = (i - 1) >> 1;
+			if (heap[up] <= entry) break;
+			heap[i] = heap[up];
+			i = up;
+		}
+		heap[i] = entry;
+	}
+
+	private int pop() {
+		long top = heap[0];
+		long last = heap[--heapSize];
+		int i = 0;
+		int half = heapSize >> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+			if (last <= heap[child]) break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return (int) top;
+	}
+}
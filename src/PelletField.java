@@ -0,0 +1,215 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+
+//distances from every cell to the pellets left at the start of a turn, so the evaluator doesn't
+//have to find a path to every pellet at every leaf
+//nearest[] is a multi-source BFS from all the pellets, sums[] holds 1 / length^2 summed over the pellets
+//and is filled in the first time a cell is asked for, with a path query per pellet, or with one BFS
+//from the cell once there are more than BFS_PELLETS pellets and each query would be an A* search
+//sums are kept from turn to turn, a cell's sum has the pellets eaten since it was last asked for taken
+//off it then, so a cell costs a path query per eaten pellet after the first time, until a pellet comes back
+//the search only takes a pellet or two away from the turn's pellets (and puts them back), so a state is
+//scored by correcting the turn's numbers for the pellets it differs by
+class PelletField {
+	private static final int BFS_PELLETS = 64;
+
+	private MazeGraph graph;
+	private Evaluator evaluator;
+
+	//pellets the field was built for
+	private long[] pelletBits = new long[0];
+	private int numPellets = 0;
+
+	private int[] nearest;
+	private int[] queue;
+	private int[] steps;
+	private double[] sums;
+	private int[] sumStamp;
+	private int[] sumEaten;		//pellets of eaten[] already taken off the cell's sum
+	private int generation = 0;
+
+	//pellets eaten since the sums were last thrown away, in the order they went
+	private int[] eaten = new int[16];
+	private int numEaten = 0;
+
+	PelletField(MazeGraph graph, Evaluator evaluator) {
+		this.graph = graph;
+		this.evaluator = evaluator;
+		int numCells = graph.getNumCells();
+		nearest = new int[numCells];
+		queue = new int[numCells];
+		steps = new int[numCells];
+		Arrays.fill(steps, DistanceTable.UNREACHABLE);
+		sums = new double[numCells];
+		sumStamp = new int[numCells];
+		sumEaten = new int[numCells];
+		Arrays.fill(nearest, DistanceTable.UNREACHABLE);
+	}
+
+	//rebuilds the field if the state's pellets are not the ones it was built for
+	void update(State testState) {
+		if (countChanges(testState) == 0) return;
+
+		//the sums can only be corrected for pellets that went, not for ones that came back
+		boolean added = false;
+		int oldWords = Math.max(pelletBits.length, testState.getPelletWords());
+		for (int word = 0; word < oldWords; word++) {
+			long fieldBits = (word < pelletBits.length) ? pelletBits[word] : 0;
+			long stateBits = testState.getPelletWord(word);
+			if ((stateBits & ~fieldBits) != 0) added = true;
+			for (long bits = fieldBits & ~stateBits; bits != 0; bits &= bits - 1) {
+				if (numEaten == eaten.length) eaten = Arrays.copyOf(eaten, numEaten * 2);
+				eaten[numEaten++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+
+		int words = Math.max(testState.getPelletWords(), 1);
+		pelletBits = new long[words];
+		numPellets = 0;
+		for (int i = 0; i < words; i++) {
+			pelletBits[i] = testState.getPelletWord(i);
+			numPellets += Long.bitCount(pelletBits[i]);
+		}
+
+		//breadth first search out from every pellet at once
+		int head = 0, tail = 0;
+		Arrays.fill(nearest, DistanceTable.UNREACHABLE);
+		for (int i = testState.nextPellet(0); i >= 0; i = testState.nextPellet(i + 1)) {
+			int cell = graph.getPelletCell(i);
+			if (nearest[cell] != 0) {
+				nearest[cell] = 0;
+				queue[tail++] = cell;
+			}
+		}
+		while (head < tail) {
+			int cell = queue[head++];
+			int degree = graph.getDegree(cell);
+			for (int i = 0; i < degree; i++) {
+				int adjCell = graph.getNeighbour(cell, i);
+				if (nearest[adjCell] == DistanceTable.UNREACHABLE) {
+					nearest[adjCell] = nearest[cell] + 1;
+					queue[tail++] = adjCell;
+				}
+			}
+		}
+
+		//forget the sums of the old pellets
+		if (added) {
+			numEaten = 0;
+			generation++;
+			if (generation == 0) {
+				Arrays.fill(sumStamp, 0);
+				generation = 1;
+			}
+		}
+	}
+
+	//path length from a cell to the closest pellet in the state, or Integer.MAX_VALUE if none can be reached
+	int getNearestLength(State testState, int cell) {
+		if (countChanges(testState) == 0) {
+			int dist = nearest[cell];
+			return (dist == DistanceTable.UNREACHABLE) ? Integer.MAX_VALUE : Math.max(dist, 1);
+		}
+
+		//a pellet the field counts is gone, it may have been the nearest one
+		int length = Integer.MAX_VALUE;
+		for (int i = testState.nextPellet(0); i >= 0; i = testState.nextPellet(i + 1)) {
+			length = Math.min(length, evaluator.getPathLength(cell, graph.getPelletCell(i)));
+		}
+		return length;
+	}
+
+	//sum of 1 / length^2 from a cell to every pellet in the state
+	double getInverseSquareSum(State testState, int cell) {
+		if (sumStamp[cell] != generation) {
+			double sum = 0;
+			if (numPellets > BFS_PELLETS && evaluator.searchesEachPath()) {
+				sum = getBfsSum(cell);
+			} else {
+				for (int word = 0; word < pelletBits.length; word++) {
+					for (long bits = pelletBits[word]; bits != 0; bits &= bits - 1) {
+						sum += getInverseSquare(cell, (word << 6) + Long.numberOfTrailingZeros(bits));
+					}
+				}
+			}
+			sums[cell] = sum;
+			sumStamp[cell] = generation;
+			sumEaten[cell] = numEaten;
+		}
+		for (; sumEaten[cell] < numEaten; sumEaten[cell]++) {
+			sums[cell] -= getInverseSquare(cell, eaten[sumEaten[cell]]);
+		}
+
+		//take off the pellets the state has eaten, add any it has that the field doesn't
+		double sum = sums[cell];
+		int words = Math.max(pelletBits.length, testState.getPelletWords());
+		for (int word = 0; word < words; word++) {
+			long fieldBits = (word < pelletBits.length) ? pelletBits[word] : 0;
+			long stateBits = testState.getPelletWord(word);
+			for (long bits = fieldBits & ~stateBits; bits != 0; bits &= bits - 1) {
+				sum -= getInverseSquare(cell, (word << 6) + Long.numberOfTrailingZeros(bits));
+			}
+			for (long bits = stateBits & ~fieldBits; bits != 0; bits &= bits - 1) {
+				sum += getInverseSquare(cell, (word << 6) + Long.numberOfTrailingZeros(bits));
+			}
+		}
+		return sum;
+	}
+
+	private double getInverseSquare(int cell, int pellet) {
+		double length = evaluator.getPathLength(cell, graph.getPelletCell(pellet));
+		return 1.0 / (length * length);
+	}
+
+	//the field's sum for a cell from a BFS out to its pellets, added up in the same order and with the
+	//same lengths as the path queries would give, steps[] is put back to unreached for the cells it queued
+	private double getBfsSum(int cell) {
+		int head = 0, tail = 0;
+		int found = 0;
+		steps[cell] = 0;
+		queue[tail++] = cell;
+		while (head < tail && found < numPellets) {
+			int nextCell = queue[head++];
+			if (hasFieldPellet(graph.getPelletAt(nextCell))) found++;
+			int degree = graph.getDegree(nextCell);
+			for (int i = 0; i < degree; i++) {
+				int adjCell = graph.getNeighbour(nextCell, i);
+				if (steps[adjCell] == DistanceTable.UNREACHABLE) {
+					steps[adjCell] = steps[nextCell] + 1;
+					queue[tail++] = adjCell;
+				}
+			}
+		}
+
+		double sum = 0;
+		for (int word = 0; word < pelletBits.length; word++) {
+			for (long bits = pelletBits[word]; bits != 0; bits &= bits - 1) {
+				int dist = steps[graph.getPelletCell((word << 6) + Long.numberOfTrailingZeros(bits))];
+				double length = (dist == DistanceTable.UNREACHABLE) ? Integer.MAX_VALUE : Math.max(dist, 1);
+				sum += 1.0 / (length * length);
+			}
+		}
+		for (int i = 0; i < tail; i++) {
+			steps[queue[i]] = DistanceTable.UNREACHABLE;
+		}
+		return sum;
+	}
+
+	private boolean hasFieldPellet(int pellet) {
+		return pellet >= 0 && (pellet >> 6) < pelletBits.length && (pelletBits[pellet >> 6] & (1L << pellet)) != 0;
+	}
+
+	//number of pellets the state and the field disagree on
+	private int countChanges(State testState) {
+		int changes = 0;
+		int words = Math.max(pelletBits.length, testState.getPelletWords());
+		for (int word = 0; word < words; word++) {
+			long fieldBits = (word < pelletBits.length) ? pelletBits[word] : 0;
+			changes += Long.bitCount(fieldBits ^ testState.getPelletWord(word));
+		}
+		return changes;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Matthew Clark
+ */
+
+//what the board shows at one moment: hupman, the ghosts and the pellets left
+//built by whichever thread changed the game and drawn by the EDT, it never changes once built
+//so painting can't see a half-updated state
+final class RenderSnapshot {
+	private final int hupmanCell;
+	private final int[] ghostCells;
+	private final long[] pelletBits;
+
+	RenderSnapshot(State state) {
+		hupmanCell = state.getHupmanCell();
+		ghostCells = new int[state.getNumGhosts()];
+		for (int i = 0; i < ghostCells.length; i++) {
+			ghostCells[i] = state.getGhostCell(i);
+		}
+		pelletBits = new long[state.getPelletWords()];
+		for (int i = 0; i < pelletBits.length; i++) {
+			pelletBits[i] = state.getPelletWord(i);
+		}
+	}
+
+	int getHupmanCell() {
+		return hupmanCell;
+	}
+
+	int getNumGhosts() {
+		return ghostCells.length;
+	}
+
+	int getGhostCell(int ghostNum) {
+		return ghostCells[ghostNum];
+	}
+
+	int getPelletWords() {
+		return pelletBits.length;
+	}
+
+	long getPelletWord(int word) {
+		return (word < pelletBits.length) ? pelletBits[word] : 0;
+	}
+
+	boolean hasPellet(int pellet) {
+		return pellet >= 0 && (pellet >> 6) < pelletBits.length && (pelletBits[pellet >> 6] & (1L << pellet)) != 0;
+	}
+}
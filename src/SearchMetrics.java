@@ -0,0 +1,248 @@
+/*
+ * Matthew Clark
+ */
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//search statistics for every move played, totalled since the last reset and for the last move
+//searchers count into their own SearchStats and only add them in here once per move, into striped
+//LongAdders, so several searching threads don't fight over the same counters
+public class SearchMetrics implements SearchMetricsMBean {
+	private static final int NUM_BUCKETS = 12;
+
+	private LongAdder moves = new LongAdder();
+	private LongAdder nodes = new LongAdder();
+	private LongAdder leaves = new LongAdder();
+	private LongAdder expanded = new LongAdder();
+	private LongAdder children = new LongAdder();
+	private LongAdder cutoffs = new LongAdder();
+	private LongAdder pathQueries = new LongAdder();
+	private LongAdder tableProbes = new LongAdder();
+	private LongAdder tableHits = new LongAdder();
+	private LongAdder searchNanos = new LongAdder();
+	private LongAdder depthSum = new LongAdder();
+	private LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+	private LongAccumulator maxPly = new LongAccumulator(Math::max, 0);
+	private LongAccumulator maxMoveNanos = new LongAccumulator(Math::max, 0);
+	private LongAdder[] moveTimes = new LongAdder[NUM_BUCKETS];
+
+	//searches of the next position made while the game waited, kept out of the move statistics
+	private LongAdder ponders = new LongAdder();
+	private LongAdder ponderNodes = new LongAdder();
+	private LongAdder ponderNanos = new LongAdder();
+
+	private volatile long lastMoveNanos = 0;
+	private volatile long lastMoveNodes = 0;
+	private volatile int lastMoveDepth = 0;
+
+	public SearchMetrics() {
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			moveTimes[i] = new LongAdder();
+		}
+	}
+
+	//creates the metrics and registers them with the platform MBean server as Hupman:type=<type>
+	static SearchMetrics register(String type) {
+		SearchMetrics metrics = new SearchMetrics();
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("Hupman:type=" + type);
+			if (server.isRegistered(name)) server.unregisterMBean(name);
+			server.registerMBean(metrics, name);
+		} catch (JMException ex) {
+			ex.printStackTrace();
+		}
+		return metrics;
+	}
+
+	//adds one move's statistics, "depth" is the deepest search that finished
+	void recordMove(SearchStats stats, int depth, long nanos) {
+		moves.increment();
+		nodes.add(stats.nodes);
+		leaves.add(stats.leaves);
+		expanded.add(stats.expanded);
+		children.add(stats.children);
+		cutoffs.add(stats.cutoffs);
+		pathQueries.add(stats.pathQueries);
+		tableProbes.add(stats.tableProbes);
+		tableHits.add(stats.tableHits);
+		searchNanos.add(nanos);
+		depthSum.add(depth);
+		maxDepth.accumulate(depth);
+		maxPly.accumulate(stats.maxPly);
+		maxMoveNanos.accumulate(nanos);
+
+		//bucket i holds moves that took [2^(i-1), 2^i) ms
+		long millis = nanos / 1000000;
+		moveTimes[Math.min(64 - Long.numberOfLeadingZeros(millis), NUM_BUCKETS - 1)].increment();
+
+		lastMoveNanos = nanos;
+		lastMoveNodes = stats.nodes;
+		lastMoveDepth = depth;
+	}
+
+	//adds one search made while waiting for a move to be due
+	void recordPonder(SearchStats stats, long nanos) {
+		ponders.increment();
+		ponderNodes.add(stats.nodes);
+		ponderNanos.add(nanos);
+	}
+
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	public double getNodesPerSecond() {
+		long nanos = searchNanos.sum();
+		return (nanos == 0) ? 0 : nodes.sum() * 1e9 / nanos;
+	}
+
+	public long getLeafEvaluations() {
+		return leaves.sum();
+	}
+
+	public long getPathQueries() {
+		return pathQueries.sum();
+	}
+
+	//average number of moves searched below a node
+	public double getBranchingFactor() {
+		long count = expanded.sum();
+		return (count == 0) ? 0 : (double) children.sum() / count;
+	}
+
+	public long getCutoffs() {
+		return cutoffs.sum();
+	}
+
+	public long getTableProbes() {
+		return tableProbes.sum();
+	}
+
+	public long getTableHits() {
+		return tableHits.sum();
+	}
+
+	public double getTableHitRate() {
+		long count = tableProbes.sum();
+		return (count == 0) ? 0 : (double) tableHits.sum() / count;
+	}
+
+	public double getAverageDepth() {
+		long count = moves.sum();
+		return (count == 0) ? 0 : (double) depthSum.sum() / count;
+	}
+
+	public int getMaxDepth() {
+		return (int) maxDepth.get();
+	}
+
+	public int getMaxPly() {
+		return (int) maxPly.get();
+	}
+
+	public double getAverageMoveMillis() {
+		long count = moves.sum();
+		return (count == 0) ? 0 : searchNanos.sum() / 1e6 / count;
+	}
+
+	public double getMaxMoveMillis() {
+		return maxMoveNanos.get() / 1e6;
+	}
+
+	public long[] getMoveTimeHistogram() {
+		long[] histogram = new long[NUM_BUCKETS];
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			histogram[i] = moveTimes[i].sum();
+		}
+		return histogram;
+	}
+
+	public long getPonders() {
+		return ponders.sum();
+	}
+
+	public long getPonderNodes() {
+		return ponderNodes.sum();
+	}
+
+	public double getPonderMillis() {
+		return ponderNanos.sum() / 1e6;
+	}
+
+	public double getLastMoveMillis() {
+		return lastMoveNanos / 1e6;
+	}
+
+	public long getLastMoveNodes() {
+		return lastMoveNodes;
+	}
+
+	public int getLastMoveDepth() {
+		return lastMoveDepth;
+	}
+
+	public void reset() {
+		moves.reset();
+		nodes.reset();
+		leaves.reset();
+		expanded.reset();
+		children.reset();
+		cutoffs.reset();
+		pathQueries.reset();
+		tableProbes.reset();
+		tableHits.reset();
+		searchNanos.reset();
+		depthSum.reset();
+		maxDepth.reset();
+		maxPly.reset();
+		maxMoveNanos.reset();
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			moveTimes[i].reset();
+		}
+		ponders.reset();
+		ponderNodes.reset();
+		ponderNanos.reset();
+		lastMoveNanos = 0;
+		lastMoveNodes = 0;
+		lastMoveDepth = 0;
+	}
+
+	//block printed with the score
+	String summary() {
+		StringBuilder sb = new StringBuilder("Search:\n");
+		sb.append(String.format("\tMoves: %d (%.2f ms average, %.2f ms slowest)\n", getMoves(),
+				getAverageMoveMillis(), getMaxMoveMillis()));
+		sb.append(String.format("\tNodes: %d (%.0f nodes/s)\n", getNodes(), getNodesPerSecond()));
+		sb.append(String.format("\tLeaf evaluations: %d\n", getLeafEvaluations()));
+		sb.append(String.format("\tPath queries: %d\n", getPathQueries()));
+		sb.append(String.format("\tBranching factor: %.2f (%d cutoffs)\n", getBranchingFactor(), getCutoffs()));
+		sb.append(String.format("\tDepth: %.2f average, %d completed, %d plies deepest\n", getAverageDepth(),
+				getMaxDepth(), getMaxPly()));
+
+		sb.append("\tMove times:");
+		long[] histogram = getMoveTimeHistogram();
+		String separator = " ";
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			if (histogram[i] == 0) continue;
+			String bucket = (i == 0) ? "<1" : (i == NUM_BUCKETS - 1) ? ">=" + (1 << (i - 1)) : (1 << (i - 1)) + "-" + (1 << i);
+			sb.append(separator).append(bucket).append(" ms: ").append(histogram[i]);
+			separator = ", ";
+		}
+		sb.append("\n");
+		if (getPonders() > 0) {
+			sb.append(String.format("\tPondering: %d positions, %.0f ms, %d nodes\n", getPonders(), getPonderMillis(),
+					getPonderNodes()));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Matthew Clark
+ */
+
+//search statistics as seen over JMX (jconsole, VisualVM), see SearchMetrics
+public interface SearchMetricsMBean {
+	long getMoves();
+
+	long getNodes();
+
+	double getNodesPerSecond();
+
+	long getLeafEvaluations();
+
+	long getPathQueries();
+
+	double getBranchingFactor();
+
+	long getCutoffs();
+
+	//transposition table lookups made by the moves' searches
+	long getTableProbes();
+
+	long getTableHits();
+
+	double getTableHitRate();
+
+	//deepest finished search, averaged over the moves
+	double getAverageDepth();
+
+	int getMaxDepth();
+
+	int getMaxPly();
+
+	double getAverageMoveMillis();
+
+	double getMaxMoveMillis();
+
+	//moves that took under 1 ms, 1-2 ms, 2-4 ms ... and 1024 ms or more
+	long[] getMoveTimeHistogram();
+
+	//searches of the next position made while waiting for a move to be due
+	long getPonders();
+
+	long getPonderNodes();
+
+	double getPonderMillis();
+
+	double getLastMoveMillis();
+
+	long getLastMoveNodes();
+
+	int getLastMoveDepth();
+
+	void reset();
+}
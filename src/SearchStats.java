@@ -0,0 +1,41 @@
+/*
+ * Matthew Clark
+ */
+
+//search counters for one move of one searcher
+//only the thread running the searcher writes them, so they are plain fields and cost next to nothing
+class SearchStats {
+	long nodes;			//nodes visited, leaves included
+	long leaves;		//leaf evaluations
+	long expanded;		//nodes whose moves were searched
+	long children;		//moves searched below expanded nodes
+	long cutoffs;		//alpha-beta cutoffs
+	long pathQueries;	//path lengths asked of the evaluator
+	long tableProbes;	//transposition table lookups, counted here since the table can be shared by threads
+	long tableHits;		//lookups that found an entry
+	int maxPly;			//deepest ply reached
+
+	void clear() {
+		nodes = 0;
+		leaves = 0;
+		expanded = 0;
+		children = 0;
+		cutoffs = 0;
+		pathQueries = 0;
+		tableProbes = 0;
+		tableHits = 0;
+		maxPly = 0;
+	}
+
+	void add(SearchStats other) {
+		nodes += other.nodes;
+		leaves += other.leaves;
+		expanded += other.expanded;
+		children += other.children;
+		cutoffs += other.cutoffs;
+		pathQueries += other.pathQueries;
+		tableProbes += other.tableProbes;
+		tableHits += other.tableHits;
+		maxPly = Math.max(maxPly, other.maxPly);
+	}
+}
@@ -0,0 +1,647 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//minimax that makes and unmakes moves on one working state instead of copying a State for every child
+//children are visited and the ghosts' random choices are drawn in the same order as Hupman.minimax,
+//so both searches pick the same moves
+//when every ghost plays its best move the tree is a plain min/max tree, so it is searched with
+//alpha-beta instead (killer moves, history and distance ordering), which can pick a different move on ties
+//alpha-beta results are cached in a transposition table keyed by the state's Zobrist hash
+//searchTimed deepens one ply at a time until a per-move time budget runs out
+//how many iterations finish depends on the clock, so a timed search draws from one generator split off the
+//caller's per turn, and a ghost's move at the root is drawn from the caller's once, after deepening: the
+//caller's generator moves on the same amount every turn and a game's seed still replays its ghosts' choices
+//every move played is counted in a SearchStats and added to the SearchMetrics, if there are any
+//with macro moves on, hupman commits to a corridor once it has stepped into one: inside the tree the only move
+//from a corridor cell is onwards, unless a ghost is close enough to make turning back matter, so hupman's
+//corridor plies don't branch and a timed search gets deeper; the root still has every move, so hupman can
+//turn back in the game
+//(the plies along a corridor still count against the depth, leaves at different step counts can't be
+//compared by the evaluation functions, which weigh the steps taken)
+class Searcher {
+	private MazeGraph graph;
+	private Evaluator evaluator;
+
+	//search settings for the current turn
+	private State workState;
+	private int evalFunction;
+	private double minProb;
+	private int rootTurn;
+	private SplittableRandom random;	//the ghosts' random choices
+	private double[] rootWeights = new double[4];	//root move weights of the last iteration that finished
+
+	//undo stack, one record per ply
+	private int[] undoCell = new int[0];
+	private int[] undoTurn = new int[0];
+	private int[] undoSteps = new int[0];
+	private int[] undoUneaten = new int[0];
+	private int[] undoPellet = new int[0];
+	private boolean[] undoDead = new boolean[0];
+
+	//weights of the children at each ply (at most 4 moves from a cell)
+	private double[][] childWeights = new double[0][];
+
+	//alpha-beta move ordering
+	private boolean useAlphaBeta = true;
+	private int[][] moveOrder = new int[0][];
+	private int[][] moveScores = new int[0][];
+	private int[][] killers = new int[0][];	//two cells per ply that last caused a cutoff
+	private int[] history;					//cutoff score per (cell, neighbour index)
+	private int[] bestMoves = new int[0];
+	private TranspositionTable table = null;
+	private TranspositionTable.Entry tableEntry = new TranspositionTable.Entry();
+	private JunctionGraph junctions = null;		//not null when hupman makes macro moves
+
+	//iterative deepening
+	private long deadline = Long.MAX_VALUE;
+	private boolean aborted = false;
+	private int nodeCount = 0;
+	private int completedDepth = 0;
+	private int rootMove = -1;
+	private double rootWeight = 0;
+
+	//statistics
+	private SearchStats stats = new SearchStats();
+	private SearchMetrics metrics = null;
+	private long pathQueriesStart = 0;
+
+	private static final int TABLE_SCORE = 1 << 25;
+	private static final int KILLER_SCORE = 1 << 24;
+	private static final int DISTANCE_SCORE = 64;
+	private static final long CORRIDOR_KEY = 0x636f727269646f72L;
+
+	Searcher(MazeGraph graph, Evaluator evaluator) {
+		this.graph = graph;
+		this.evaluator = evaluator;
+		history = new int[graph.getNumCells() * 4];
+	}
+
+	void setAlphaBeta(boolean alphaBeta) {
+		useAlphaBeta = alphaBeta;
+	}
+
+	//a junction graph of the maze turns macro moves on, null turns them off
+	void setMacroMoves(JunctionGraph junctions) {
+		this.junctions = junctions;
+	}
+
+	void setTranspositionTable(TranspositionTable table) {
+		this.table = table;
+	}
+
+	TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	//forgets the move ordering and transposition table of earlier games, so a game played with the
+	//same seed makes the same moves whatever was searched before it
+	void newGame() {
+		Arrays.fill(history, 0);
+		for (int i = 0; i < killers.length; i++) {
+			killers[i][0] = -1;
+			killers[i][1] = -1;
+		}
+		if (table != null) table.clear();
+	}
+
+	void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	//counts since the last clearStats
+	SearchStats getStats() {
+		stats.pathQueries = evaluator.getPathQueries() - pathQueriesStart;
+		return stats;
+	}
+
+	void clearStats() {
+		stats.clear();
+		pathQueriesStart = evaluator.getPathQueries();
+	}
+
+	//returns the state after the best move for whoever's turn it is in rootState, searched to a fixed depth
+	State search(State rootState, int depth, double minProb, int evalFunction, SplittableRandom random) {
+		long startTime = System.nanoTime();
+		clearStats();
+		startSearch(rootState, depth, minProb, evalFunction, random);
+		evaluator.startTurn(rootState);
+		if (table != null) table.nextSearch();
+		if (depth <= 0) return recordMove(scoreRoot(rootState), startTime);
+
+		deadline = Long.MAX_VALUE;
+		int bestIndex = searchRoot(depth, -1);
+		completedDepth = depth;
+		return recordMove(replayMove(rootState, bestIndex, rootWeight), startTime);
+	}
+
+	//iterative deepening: searches 1, 2, 3... plies until the time budget runs out and plays the best move
+	//of the last iteration that finished, which is also searched first by the next iteration
+	State searchTimed(State rootState, long moveTimeMs, int maxDepth, double minProb, int evalFunction,
+					  SplittableRandom random) {
+		long startTime = System.nanoTime();
+		return recordMove(deepen(rootState, startTime, moveTimeMs, maxDepth, minProb, evalFunction, random), startTime);
+	}
+
+	//searches a position a later move will be made from while the game waits for the current move to be due,
+	//the results left in the transposition table make the next searchTimed from it go deeper
+	//only the alpha-beta search stores results, so rootState should be hupman's turn (or every ghost plays its best)
+	//the time is counted as pondering in the metrics, not as a move
+	void ponder(State rootState, long ponderTimeMs, int maxDepth, double minProb, int evalFunction,
+				SplittableRandom random) {
+		long startTime = System.nanoTime();
+		deepen(rootState, startTime, ponderTimeMs, maxDepth, minProb, evalFunction, random);
+		if (metrics != null) metrics.recordPonder(getStats(), System.nanoTime() - startTime);
+	}
+
+	private State deepen(State rootState, long startTime, long moveTimeMs, int maxDepth, double minProb,
+						 int evalFunction, SplittableRandom random) {
+		clearStats();
+		startSearch(rootState, maxDepth, minProb, evalFunction, random.split());
+		evaluator.startTurn(rootState);
+		if (table != null) table.nextSearch();
+		if (maxDepth <= 0) return scoreRoot(rootState);
+
+		int turn = rootState.getTurn();
+		int rootCell = (turn == 0) ? rootState.getHupmanCell() : rootState.getGhostCell(turn - 1);
+		int degree = graph.getDegree(rootCell);
+		boolean drawRoot = !(useAlphaBeta && (turn == 0 || minProb >= 1.0));
+		int bestIndex = -1;
+		double bestWeight = 0;
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			//the first iteration always finishes so there is a move to play
+			deadline = (depth == 1) ? Long.MAX_VALUE : startTime + moveTimeMs * 1000000;
+			int index = searchRoot(depth, bestIndex);
+			if (aborted) break;
+
+			bestIndex = index;
+			bestWeight = rootWeight;
+			completedDepth = depth;
+			if (drawRoot) System.arraycopy(childWeights[0], 0, rootWeights, 0, degree);
+
+			//nothing to choose between
+			if (degree == 1) break;
+		}
+
+		//the ghost's move that gets played
+		if (drawRoot && turn != 0) {
+			bestIndex = min(rootWeights, degree, minProb, random);
+			bestWeight = rootWeights[bestIndex];
+		}
+		return replayMove(rootState, bestIndex, bestWeight);
+	}
+
+	//builds the evaluator's fields for a turn, searchValue leaves this to the caller so the fields
+	//aren't rebuilt for every iteration
+	void startTurn(State rootState) {
+		evaluator.startTurn(rootState);
+	}
+
+	//weight of a state searched to a fixed depth, used to search the root moves on separate threads
+	//rootTurn is the turn of the state the root move was made from, call startTurn first
+	//returns Double.NaN if the deadline passed before the search finished
+	double searchValue(State state, int depth, long deadline, int rootTurn, double minProb, int evalFunction,
+					   SplittableRandom random) {
+		startSearch(state, depth, minProb, evalFunction, random);
+		this.rootTurn = rootTurn;
+		this.deadline = deadline;
+		aborted = false;
+		rootMove = -1;
+
+		double weight;
+		if (useAlphaBeta && (rootTurn == 0 || minProb >= 1.0)) {
+			weight = alphaBeta(0, depth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		} else {
+			weight = minimax(0, depth);
+		}
+		return aborted ? Double.NaN : weight;
+	}
+
+	//depth of the last search that finished
+	int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	private State recordMove(State bestState, long startTime) {
+		if (metrics != null) metrics.recordMove(getStats(), completedDepth, System.nanoTime() - startTime);
+		return bestState;
+	}
+
+	private void startSearch(State rootState, int depth, double minProb, int evalFunction, SplittableRandom random) {
+		this.evalFunction = evalFunction;
+		this.minProb = minProb;
+		this.random = random;
+		rootTurn = rootState.getTurn();
+		workState = new State(rootState);
+		ensureDepth(depth + 1);
+		completedDepth = 0;
+		ageHistory();
+	}
+
+	//nothing to search, score the root like a leaf
+	private State scoreRoot(State rootState) {
+		State leafState = new State(rootState);
+		if (leafState.getTurn() == 0) {
+			leafState.addStep();
+			leafState.setUneatenSteps(leafState.getUneatenSteps() + 1);
+		}
+		leafState.setWeight(evaluator.getLeafWeight(leafState, evalFunction));
+		return leafState;
+	}
+
+	//searches the root to a depth and returns the index of the best move, its weight is left in rootWeight
+	//rootMove (if not -1) is searched first
+	private int searchRoot(int depth, int rootMove) {
+		aborted = false;
+		this.rootMove = rootMove;
+
+		//ghosts always play their best move during hupman's turn
+		if (useAlphaBeta && (rootTurn == 0 || minProb >= 1.0)) {
+			rootWeight = alphaBeta(0, depth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+			return bestMoves[0];
+		}
+
+		int bestIndex = searchChildren(0, depth);
+		rootWeight = childWeights[0][bestIndex];
+		return bestIndex;
+	}
+
+	//replay the chosen move on a fresh state so pellets are eaten and deaths are applied
+	private State replayMove(State rootState, int bestIndex, double weight) {
+		int turn = rootState.getTurn();
+		int testCell = (turn == 0) ? rootState.getHupmanCell() : rootState.getGhostCell(turn - 1);
+
+		State bestState = new State(rootState);
+		moveAgent(bestState, graph.getNeighbour(testCell, bestIndex));
+		evaluator.getMoveWeight(bestState, evalFunction);
+		bestState.setWeight(weight);
+		return bestState;
+	}
+
+	//checks the clock every 1024 nodes
+	private boolean outOfTime() {
+		if ((++nodeCount & 1023) == 0 && System.nanoTime() > deadline) {
+			aborted = true;
+		}
+		return aborted;
+	}
+
+	private void ensureDepth(int plies) {
+		if (undoCell.length >= plies) return;
+
+		undoCell = new int[plies];
+		undoTurn = new int[plies];
+		undoSteps = new int[plies];
+		undoUneaten = new int[plies];
+		undoPellet = new int[plies];
+		undoDead = new boolean[plies];
+		childWeights = new double[plies][4];
+		moveOrder = new int[plies][4];
+		moveScores = new int[plies][4];
+		killers = new int[plies][2];
+		bestMoves = new int[plies];
+		for (int i = 0; i < plies; i++) {
+			killers[i][0] = -1;
+			killers[i][1] = -1;
+		}
+	}
+
+	//weight of the working state searched to the given depth
+	private double minimax(int ply, int depth) {
+		stats.nodes++;
+		if (outOfTime()) return 0;
+		if (depth <= 0) {
+			return makeLeaf(ply);
+		}
+
+		int bestIndex = searchChildren(ply, depth);
+		return childWeights[ply][bestIndex];
+	}
+
+	//fills childWeights[ply] and returns the index of the move the agent to move would pick
+	private int searchChildren(int ply, int depth) {
+		int turn = workState.getTurn();
+		boolean doMax = (turn == 0);
+		int testCell = doMax ? workState.getHupmanCell() : workState.getGhostCell(turn - 1);
+		int degree = graph.getDegree(testCell);
+		double[] weights = childWeights[ply];
+		stats.expanded++;
+
+		int from = doMax ? getCorridorFrom(ply) : -1;
+		if (from >= 0 && isSafeCorridor(depth)) {
+			int i = getCorridorMove(testCell, from);
+			stats.children++;
+			makeMove(ply, graph.getNeighbour(testCell, i));
+			weights[i] = minimax(ply + 1, depth - 1) + evaluator.getMoveWeight(workState, evalFunction);
+			unmakeMove(ply);
+			return i;
+		}
+
+		stats.children += degree;
+		for (int i = 0; i < degree; i++) {
+			makeMove(ply, graph.getNeighbour(testCell, i));
+			double weight = minimax(ply + 1, depth - 1);
+
+			//eating a pellet or running into a ghost is scored after the subtree, like the copying search
+			weights[i] = weight + evaluator.getMoveWeight(workState, evalFunction);
+			unmakeMove(ply);
+			if (aborted) return 0;
+		}
+
+		if (doMax) return max(weights, degree);
+
+		//hupman always thinks the ghost will choose the best
+		double hupmanProb = (rootTurn == 0) ? 1.0 : minProb;
+		return min(weights, degree, hupmanProb, random);
+	}
+
+	//weight of the working state with alpha-beta pruning, only valid for ply-deterministic trees
+	//the index of the best move is left in bestMoves[ply]
+	private double alphaBeta(int ply, int depth, double alpha, double beta) {
+		stats.nodes++;
+		if (outOfTime()) return 0;
+		if (depth <= 0) {
+			return makeLeaf(ply);
+		}
+
+		//a stored result that was searched at least as deep can answer this node (except at the root,
+		//which needs its best move from this search)
+		long key = 0;
+		int tableMove = -1;
+		int from = getCorridorFrom(ply);
+		if (table != null) {
+			//what is searched below depends on the way hupman is going along the corridor
+			key = getTableKey();
+			if (from >= 0) key ^= State.mix(CORRIDOR_KEY + from);
+			stats.tableProbes++;
+			if (table.probe(key, tableEntry)) {
+				stats.tableHits++;
+				tableMove = tableEntry.move;
+				if (ply > 0 && tableEntry.depth >= depth) {
+					double value = tableEntry.value;
+					int bound = tableEntry.bound;
+					if (bound == TranspositionTable.BOUND_EXACT
+							|| (bound == TranspositionTable.BOUND_LOWER && value >= beta)
+							|| (bound == TranspositionTable.BOUND_UPPER && value <= alpha)) {
+						return value;
+					}
+				}
+			}
+		}
+
+		int turn = workState.getTurn();
+		boolean doMax = (turn == 0);
+		int testCell = doMax ? workState.getHupmanCell() : workState.getGhostCell(turn - 1);
+		int degree = graph.getDegree(testCell);
+		if (ply == 0 && rootMove >= 0) tableMove = rootMove;
+		int[] order;
+		int numMoves = degree;
+		if (doMax && from >= 0 && isSafeCorridor(depth)) {
+			order = moveOrder[ply];
+			order[0] = getCorridorMove(testCell, from);
+			numMoves = 1;
+		} else {
+			order = orderMoves(ply, testCell, doMax, tableMove);
+		}
+
+		double alphaStart = alpha;
+		double betaStart = beta;
+		double best = doMax ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		bestMoves[ply] = order[0];
+		stats.expanded++;
+		for (int k = 0; k < numMoves; k++) {
+			int i = order[k];
+			stats.children++;
+			makeMove(ply, graph.getNeighbour(testCell, i));
+
+			//the move weight is added on top of the subtree, so shift the window by it
+			double moveWeight = getMoveWeight(ply);
+			double weight = moveWeight + alphaBeta(ply + 1, depth - 1, alpha - moveWeight, beta - moveWeight);
+			unmakeMove(ply);
+
+			//the result of an unfinished search is thrown away, don't store it
+			if (aborted) return best;
+
+			if (doMax ? weight > best : weight < best) {
+				best = weight;
+				bestMoves[ply] = i;
+			}
+			if (doMax) alpha = Math.max(alpha, best);
+			else beta = Math.min(beta, best);
+
+			if (alpha >= beta) {
+				stats.cutoffs++;
+				storeCutoff(ply, testCell, i, depth);
+				break;
+			}
+		}
+
+		if (table != null) {
+			int bound = TranspositionTable.BOUND_EXACT;
+			if (best <= alphaStart) bound = TranspositionTable.BOUND_UPPER;
+			else if (best >= betaStart) bound = TranspositionTable.BOUND_LOWER;
+			table.store(key, depth, best, bound, bestMoves[ply]);
+		}
+
+		return best;
+	}
+
+	//the cell hupman stepped into its corridor cell from, if it is in a corridor and made that move in this search,
+	//otherwise -1 (always -1 without macro moves)
+	private int getCorridorFrom(int ply) {
+		if (junctions == null || !junctions.isCorridor(workState.getHupmanCell())) return -1;
+
+		//hupman moved "turn" plies ago, or a whole round ago on its own turn
+		int turn = workState.getTurn();
+		int last = ply - ((turn == 0) ? workState.getNumGhosts() + 1 : turn);
+		if (last < 0 || undoTurn[last] != 0) return -1;
+		return undoCell[last];
+	}
+
+	//hupman only commits while no ghost can get to it in the plies left, closer ghosts can make turning back the best move
+	private boolean isSafeCorridor(int depth) {
+		int hupmanCell = workState.getHupmanCell();
+		for (int i = 0; i < workState.getNumGhosts(); i++) {
+			if (evaluator.getGhostPathLength(hupmanCell, workState.getGhostCell(i)) <= depth) return false;
+		}
+		return true;
+	}
+
+	//index of the move on along the corridor, a corridor cell has 2 neighbours
+	private int getCorridorMove(int cell, int from) {
+		return (graph.getNeighbour(cell, 0) == from) ? 1 : 0;
+	}
+
+	//the evaluation also depends on the step counts and function, which the state hash leaves out
+	private long getTableKey() {
+		return workState.getHash() ^ State.mix(((long) evalFunction << 48)
+				^ ((long) workState.getSteps() << 24) ^ workState.getUneatenSteps());
+	}
+
+	//scores the move without keeping the pellet it eats or the death it causes, the subtree
+	//below a move is searched before those are applied (see searchChildren)
+	private double getMoveWeight(int ply) {
+		int uneatenSteps = workState.getUneatenSteps();
+		double weight = evaluator.getMoveWeight(workState, evalFunction);
+
+		if (undoPellet[ply] >= 0) workState.addPellet(undoPellet[ply]);
+		workState.setDead(undoDead[ply]);
+		workState.setUneatenSteps(uneatenSteps);
+		return weight;
+	}
+
+	//the transposition table's move first, then killer moves, then moves that caused cutoffs before,
+	//then hupman towards the nearest pellet and ghosts towards hupman
+	private int[] orderMoves(int ply, int testCell, boolean doMax, int tableMove) {
+		int degree = graph.getDegree(testCell);
+		int[] order = moveOrder[ply];
+		int[] scores = moveScores[ply];
+
+		for (int i = 0; i < degree; i++) {
+			int adjCell = graph.getNeighbour(testCell, i);
+			int dist = doMax ? evaluator.getNearestPelletLength(workState, adjCell)
+					: evaluator.getGhostPathLength(workState.getHupmanCell(), adjCell);
+			int score = history[testCell * 4 + i] - DISTANCE_SCORE * Math.min(dist, 1 << 16);
+			if (adjCell == killers[ply][0] || adjCell == killers[ply][1]) score += KILLER_SCORE;
+			if (i == tableMove) score += TABLE_SCORE;
+
+			//insertion sort, at most 4 moves
+			int k = i;
+			while (k > 0 && scores[k - 1] < score) {
+				scores[k] = scores[k - 1];
+				order[k] = order[k - 1];
+				k--;
+			}
+			scores[k] = score;
+			order[k] = i;
+		}
+
+		return order;
+	}
+
+	private void storeCutoff(int ply, int testCell, int i, int depth) {
+		int adjCell = graph.getNeighbour(testCell, i);
+		if (killers[ply][0] != adjCell) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = adjCell;
+		}
+		history[testCell * 4 + i] += depth * depth;
+	}
+
+	//halve the history scores between searches so old cutoffs fade out
+	private void ageHistory() {
+		for (int i = 0; i < history.length; i++) {
+			history[i] >>= 1;
+		}
+	}
+
+	//moves the agent whose turn it is and passes the turn on
+	static void moveAgent(State testState, int cell) {
+		int turn = testState.getTurn();
+		if (turn == 0) {
+			testState.setHupmanCell(cell);
+			testState.addStep();
+			testState.setUneatenSteps(testState.getUneatenSteps() + 1);
+		} else {
+			testState.setGhostCell(turn - 1, cell);
+		}
+		testState.nextTurn();
+	}
+
+	private void saveUndo(int ply) {
+		int turn = workState.getTurn();
+		undoTurn[ply] = turn;
+		undoCell[ply] = (turn == 0) ? workState.getHupmanCell() : workState.getGhostCell(turn - 1);
+		undoSteps[ply] = workState.getSteps();
+		undoUneaten[ply] = workState.getUneatenSteps();
+		undoDead[ply] = workState.getDead();
+	}
+
+	//the evaluator eats the pellet under hupman, remember it so it can be put back
+	private void savePellet(int ply) {
+		int pellet = graph.getPelletAt(workState.getHupmanCell());
+		undoPellet[ply] = workState.hasPellet(pellet) ? pellet : -1;
+	}
+
+	private void makeMove(int ply, int cell) {
+		saveUndo(ply);
+		moveAgent(workState, cell);
+		savePellet(ply);
+	}
+
+	private void unmakeMove(int ply) {
+		if (undoPellet[ply] >= 0) workState.addPellet(undoPellet[ply]);
+		workState.setDead(undoDead[ply]);
+		workState.setUneatenSteps(undoUneaten[ply]);
+		workState.setSteps(undoSteps[ply]);
+		workState.setTurn(undoTurn[ply]);
+		if (undoTurn[ply] == 0) {
+			workState.setHupmanCell(undoCell[ply]);
+		} else {
+			workState.setGhostCell(undoTurn[ply] - 1, undoCell[ply]);
+		}
+	}
+
+	//the copying search scores a leaf on a copy where the agent to move "steps" onto its own cell
+	private double makeLeaf(int ply) {
+		stats.leaves++;
+		if (ply > stats.maxPly) stats.maxPly = ply;
+		saveUndo(ply);
+		savePellet(ply);
+		if (workState.getTurn() == 0) {
+			workState.addStep();
+			workState.setUneatenSteps(workState.getUneatenSteps() + 1);
+		}
+
+		float weight = evaluator.getLeafWeight(workState, evalFunction);
+
+		if (undoPellet[ply] >= 0) workState.addPellet(undoPellet[ply]);
+		workState.setDead(undoDead[ply]);
+		workState.setUneatenSteps(undoUneaten[ply]);
+		workState.setSteps(undoSteps[ply]);
+		return weight;
+	}
+
+	//index of the ghost's move, the best one with probability minProb and otherwise one of the others
+	static int min(double[] weights, int count, double minProb, SplittableRandom random) {
+		int minIndex = 0;
+		for (int i = 1; i < count; i++) {
+			if (weights[i] < weights[minIndex]) {
+				minIndex = i;
+			}
+		}
+
+		//randomize the minIndex
+		double rand = random.nextDouble();
+		if (rand >= minProb) {
+			double width = (1.0 - minProb) / (count - 1);
+			for (int i = 0; i < count - 1; i++) {
+				if ((minProb + (i+1) * width) > rand) {
+					//set new state index (taking into account if it's the actual "best")
+					if (minIndex == i) {
+						minIndex = i + 1;
+					} else {
+						minIndex = i;
+					}
+					break;
+				}
+			}
+		}
+
+		return minIndex;
+	}
+
+	static int max(double[] weights, int count) {
+		int maxIndex = 0;
+		for (int i = 1; i < count; i++) {
+			if (weights[i] > weights[maxIndex]) {
+				maxIndex = i;
+			}
+		}
+
+		return maxIndex;
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Matthew Clark
+ */
+
+import java.util.Arrays;
+
+//game state with hupman and the ghosts stored as cell indices and the remaining pellets
+//as a bitset of pellet ids, so copying a state is a couple of array clones
+//the Zobrist hash of the positions, pellets and turn is kept up to date by the setters
+class State {
+	private int cellHupman = -1;
+	private int[] cellGhosts = new int[0];
+	private long[] pelletBits = new long[0];
+	private int pelletsLeft = 0;
+	private long hash = 0;
+	private int turnNum = 0;
+	private double weight = 0;
+	private boolean dead = false;
+	private int uneatenSteps = 0;
+	private int totalSteps = 0;
+
+	//Zobrist key types
+	private static final int KEY_HUPMAN = 1;
+	private static final int KEY_GHOST = 2;
+	private static final int KEY_PELLET = 3;
+	private static final int KEY_TURN = 4;
+
+	State() {
+		rehash();
+	}
+
+	State(State oldState) {
+		cellHupman = oldState.cellHupman;
+		cellGhosts = oldState.cellGhosts.clone();
+		pelletBits = oldState.pelletBits.clone();
+		pelletsLeft = oldState.pelletsLeft;
+		hash = oldState.hash;
+		turnNum = oldState.turnNum;
+		dead = oldState.dead;
+		uneatenSteps = oldState.uneatenSteps;
+		totalSteps = oldState.totalSteps;
+	}
+
+	//Zobrist key from a splitmix64 finalizer, so no key tables are needed for any maze or ghost count
+	private static long getKey(int type, int index, int value) {
+		return mix(((long) type << 56) ^ ((long) index << 32) ^ (value & 0xFFFFFFFFL));
+	}
+
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private void rehash() {
+		hash = getKey(KEY_TURN, 0, turnNum);
+		if (cellHupman >= 0) hash ^= getKey(KEY_HUPMAN, 0, cellHupman);
+		for (int i = 0; i < cellGhosts.length; i++) {
+			hash ^= getKey(KEY_GHOST, i, cellGhosts[i]);
+		}
+		for (int i = 0; i < pelletBits.length * 64; i++) {
+			if (hasPellet(i)) hash ^= getKey(KEY_PELLET, 0, i);
+		}
+	}
+
+	public long getHash() {
+		return hash;
+	}
+
+	public void setHupmanCell(int newCell) {
+		if (cellHupman >= 0) hash ^= getKey(KEY_HUPMAN, 0, cellHupman);
+		cellHupman = newCell;
+		if (cellHupman >= 0) hash ^= getKey(KEY_HUPMAN, 0, cellHupman);
+	}
+	public int getHupmanCell() {
+		return cellHupman;
+	}
+
+	public void addGhost(int ghostCell) {
+		cellGhosts = Arrays.copyOf(cellGhosts, cellGhosts.length + 1);
+		cellGhosts[cellGhosts.length - 1] = ghostCell;
+		hash ^= getKey(KEY_GHOST, cellGhosts.length - 1, ghostCell);
+	}
+	public void removeGhost(int index) {
+		int[] newGhosts = new int[cellGhosts.length - 1];
+		System.arraycopy(cellGhosts, 0, newGhosts, 0, index);
+		System.arraycopy(cellGhosts, index + 1, newGhosts, index, newGhosts.length - index);
+		cellGhosts = newGhosts;
+
+		//later ghosts changed index
+		rehash();
+	}
+	public void setGhostCell(int ghostNum, int newCell) {
+		hash ^= getKey(KEY_GHOST, ghostNum, cellGhosts[ghostNum]) ^ getKey(KEY_GHOST, ghostNum, newCell);
+		cellGhosts[ghostNum] = newCell;
+	}
+	public int getGhostCell(int ghostNum) {
+		return cellGhosts[ghostNum];
+	}
+	public int getNumGhosts() {
+		return cellGhosts.length;
+	}
+
+	public void clearPellets() {
+		pelletBits = new long[0];
+		pelletsLeft = 0;
+		rehash();
+	}
+	public void addPellet(int pellet) {
+		if ((pellet >> 6) >= pelletBits.length) {
+			pelletBits = Arrays.copyOf(pelletBits, (pellet >> 6) + 1);
+		}
+		if (!hasPellet(pellet)) {
+			pelletBits[pellet >> 6] |= 1L << pellet;
+			pelletsLeft++;
+			hash ^= getKey(KEY_PELLET, 0, pellet);
+		}
+	}
+	public void removePellet(int pellet) {
+		if (hasPellet(pellet)) {
+			pelletBits[pellet >> 6] &= ~(1L << pellet);
+			pelletsLeft--;
+			hash ^= getKey(KEY_PELLET, 0, pellet);
+		}
+	}
+	public boolean hasPellet(int pellet) {
+		return pellet >= 0 && (pellet >> 6) < pelletBits.length && (pelletBits[pellet >> 6] & (1L << pellet)) != 0;
+	}
+	//first remaining pellet id at or after "from", or -1
+	public int nextPellet(int from) {
+		int word = from >> 6;
+		if (word >= pelletBits.length) return -1;
+
+		long bits = pelletBits[word] & (-1L << from);
+		while (bits == 0) {
+			if (++word == pelletBits.length) return -1;
+			bits = pelletBits[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+	public int getPelletsLeft() {
+		return pelletsLeft;
+	}
+	//pellet bitset, 64 pellet ids per word
+	public int getPelletWords() {
+		return pelletBits.length;
+	}
+	public long getPelletWord(int word) {
+		return (word < pelletBits.length) ? pelletBits[word] : 0;
+	}
+
+	public void nextTurn() {
+		hash ^= getKey(KEY_TURN, 0, turnNum);
+		turnNum++;
+		if (turnNum > cellGhosts.length) {
+			turnNum = 0;
+		}
+		hash ^= getKey(KEY_TURN, 0, turnNum);
+	}
+	public void setTurn(int newTurn) {
+		hash ^= getKey(KEY_TURN, 0, turnNum) ^ getKey(KEY_TURN, 0, newTurn);
+		turnNum = newTurn;
+	}
+	public int getTurn() {
+		return turnNum;
+	}
+	public int getPrevTurn() {
+		if (turnNum - 1 < 0) {
+			return cellGhosts.length;
+		} else {
+			return turnNum - 1;
+		}
+	}
+
+	public void setWeight(double newWeight) {
+		weight = newWeight;
+	}
+	public double getWeight() {
+		return weight;
+	}
+
+	public void setDead(boolean isDead) {
+		dead = isDead;
+	}
+	public boolean getDead() {
+		return dead;
+	}
+
+	public void setUneatenSteps(int steps) {
+		uneatenSteps = steps;
+	}
+	public int getUneatenSteps() {
+		return uneatenSteps;
+	}
+
+	public void resetSteps() {
+		totalSteps = 0;
+	}
+	public void setSteps(int steps) {
+		totalSteps = steps;
+	}
+	public void addStep() {
+		totalSteps++;
+	}
+	public int getSteps() {
+		return totalSteps;
+	}
+}
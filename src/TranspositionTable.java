@@ -0,0 +1,109 @@
+/*
+ * Matthew Clark
+ */
+
+//fixed-size transposition table for the alpha-beta search, stored in primitive arrays
+//each bucket has two entries: a depth-preferred one that keeps the deepest result of the
+//current search and an always-replace one for everything else
+//searchers on several threads can share a table without locks: the stored key is xor-ed with the
+//entry's data, so an entry torn by two threads writing at once just fails to match
+//the table keeps no counters for the same reason, each searcher counts its probes in its SearchStats
+class TranspositionTable {
+	static final int BOUND_EXACT = 0;
+	static final int BOUND_LOWER = 1;	//value is at least this (beta cutoff)
+	static final int BOUND_UPPER = 2;	//value is at most this (no move beat alpha)
+
+	//bytes per entry: key + value + info
+	private static final int ENTRY_BYTES = 8 + 8 + 4;
+
+	private long[] keys;
+	private long[] values;
+	private int[] info;		//age << 16 | depth << 8 | bound << 4 | move
+	private int bucketMask;
+	private int age = 0;
+
+	//result of a probe, each searcher keeps its own
+	static class Entry {
+		double value;
+		int depth;
+		int bound;
+		int move;
+	}
+
+	TranspositionTable(int sizeMB) {
+		long entries = Math.max((long) sizeMB * 1024 * 1024 / ENTRY_BYTES, 2);
+		int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 30));
+		bucketMask = buckets - 1;
+
+		keys = new long[buckets * 2];
+		values = new long[buckets * 2];
+		info = new int[buckets * 2];
+	}
+
+	//entries from earlier searches can be replaced in the depth-preferred slot
+	void nextSearch() {
+		age = (age + 1) & 0xFFFF;
+	}
+
+	void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0;
+			values[i] = 0;
+			info[i] = 0;
+		}
+	}
+
+	//copies the entry for a key into "entry", returns false if there is none
+	boolean probe(long key, Entry entry) {
+		int slot = bucket(key);
+		return read(slot, key, entry) || read(slot + 1, key, entry);
+	}
+
+	void store(long key, int depth, double value, int bound, int move) {
+		int slot = bucket(key);
+		int newInfo = (age << 16) | (Math.min(depth, 0xFF) << 8) | (bound << 4) | move;
+
+		//depth 0 is never stored, so info == 0 marks an empty entry
+		int oldInfo = info[slot];
+		boolean sameKey = getKey(slot) == key;
+		if (sameKey || oldInfo == 0 || (oldInfo >>> 16) != age || depth >= ((oldInfo >> 8) & 0xFF)) {
+			//keep the replaced entry in the always-replace slot
+			if (!sameKey && oldInfo != 0) {
+				keys[slot + 1] = keys[slot];
+				values[slot + 1] = values[slot];
+				info[slot + 1] = info[slot];
+			}
+			write(slot, key, value, newInfo);
+		} else {
+			write(slot + 1, key, value, newInfo);
+		}
+	}
+
+	private int bucket(long key) {
+		return ((int) (key ^ (key >>> 32)) & bucketMask) * 2;
+	}
+
+	private long getKey(int slot) {
+		return keys[slot] ^ values[slot] ^ info[slot];
+	}
+
+	private boolean read(int slot, long key, Entry entry) {
+		long storedKey = keys[slot];
+		long storedValue = values[slot];
+		int storedInfo = info[slot];
+		if (storedInfo == 0 || (storedKey ^ storedValue ^ storedInfo) != key) return false;
+
+		entry.value = Double.longBitsToDouble(storedValue);
+		entry.depth = (storedInfo >> 8) & 0xFF;
+		entry.bound = (storedInfo >> 4) & 0xF;
+		entry.move = storedInfo & 0xF;
+		return true;
+	}
+
+	private void write(int slot, long key, double value, int newInfo) {
+		long valueBits = Double.doubleToRawLongBits(value);
+		keys[slot] = key ^ valueBits ^ newInfo;
+		values[slot] = valueBits;
+		info[slot] = newInfo;
+	}
+}
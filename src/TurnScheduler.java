@@ -0,0 +1,107 @@
+/*
+ * Matthew Clark
+ */
+
+//paces the game loop on a fixed timestep measured with System.nanoTime
+//turns are due at even intervals from the start of the game, so the time a search takes comes out of
+//the wait instead of adding to it, and a turn that runs long doesn't make the next ones rush
+//"turnsPerSecond" counts hupman's turns, the ghosts' moves share the interval between them
+//turbo mode doesn't wait at all and only asks for every frameSkip-th move to be drawn
+//the settings are changed from the EDT while the game thread waits, so everything is behind this lock
+class TurnScheduler {
+	private int turnsPerSecond = 5;
+	private boolean turbo = false;
+	private int frameSkip = 10;
+	private boolean paused = false;
+	private int steps = 0;		//moves allowed while paused
+	private long nextMove = 0;
+
+	//the first move is due straight away
+	synchronized void startGame() {
+		nextMove = System.nanoTime();
+	}
+
+	//waits until the next move is due (and not paused), "agents" is hupman plus the ghosts
+	//returns false if the game thread was interrupted
+	synchronized boolean waitForMove(int agents) {
+		try {
+			while (true) {
+				if (paused) {
+					if (steps > 0) {
+						steps--;
+						break;
+					}
+					wait();
+					continue;
+				}
+				if (turbo) break;
+
+				long waitNanos = nextMove - System.nanoTime();
+				if (waitNanos <= 0) break;
+				wait(waitNanos / 1000000, (int) (waitNanos % 1000000));
+			}
+		} catch (InterruptedException ex) {
+			return false;
+		}
+
+		//the move after this one is due an interval later, or as soon as possible if that has passed
+		//(missed moves aren't made up in a burst)
+		long interval = 1000000000L / ((long) turnsPerSecond * Math.max(agents, 1));
+		nextMove = Math.max(nextMove + interval, System.nanoTime());
+		return true;
+	}
+
+	//nanoseconds until the next move is due, 0 if it is due already or the game is paused or in turbo mode
+	//the game loop searches the next move in this time instead of waiting through it
+	synchronized long getTimeToMove() {
+		if (paused || turbo) return 0;
+		return Math.max(nextMove - System.nanoTime(), 0);
+	}
+
+	//whether the game loop should show the move it just made
+	synchronized boolean shouldDraw(int moveNum) {
+		return !turbo || paused || moveNum % frameSkip == 0;
+	}
+
+	synchronized void setTurnsPerSecond(int turns) {
+		turnsPerSecond = Math.max(turns, 1);
+		nextMove = System.nanoTime();
+		notifyAll();
+	}
+
+	synchronized int getTurnsPerSecond() {
+		return turnsPerSecond;
+	}
+
+	synchronized void setTurbo(boolean turbo) {
+		this.turbo = turbo;
+		nextMove = System.nanoTime();
+		notifyAll();
+	}
+
+	synchronized void setFrameSkip(int frames) {
+		frameSkip = Math.max(frames, 1);
+	}
+
+	synchronized int getFrameSkip() {
+		return frameSkip;
+	}
+
+	synchronized void setPaused(boolean paused) {
+		this.paused = paused;
+		steps = 0;
+		nextMove = System.nanoTime();
+		notifyAll();
+	}
+
+	synchronized boolean isPaused() {
+		return paused;
+	}
+
+	//pauses if needed and lets one move through
+	synchronized void step() {
+		paused = true;
+		steps++;
+		notifyAll();
+	}
+}